@@ -0,0 +1,49 @@
+package reversi.benchmarks;
+
+// Import Java libraries
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing the entry point of the benchmark jar.
+ * <p>
+ * Runs JMH with the given options, writing the results as JSON to jmh-result.json unless another result format or file is given,
+ * so the results of two releases can be compared with any JSON diff.
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options], e.g. GridBenchmark -p phase=midgame
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class BenchmarkMain {
+
+	/**
+	 * The file the results are written to if none is specified
+	 */
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	/**
+	 * Utility class, not to be instantiated
+	 */
+	private BenchmarkMain() {
+	}
+
+	/**
+	 * Main method running the benchmarks
+	 * @param args The JMH options
+	 * @throws Exception If the benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<String>(Arrays.asList(args));
+		if(!options.contains("-rf")) {
+			options.add("-rf");
+			options.add("json");
+		}
+		if(!options.contains("-rff")) {
+			options.add("-rff");
+			options.add(DEFAULT_RESULT_FILE);
+		}
+		org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+	}
+
+}
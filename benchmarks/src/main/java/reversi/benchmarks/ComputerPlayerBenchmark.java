@@ -0,0 +1,67 @@
+package reversi.benchmarks;
+
+// Import Java libraries
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class representing the benchmark of the move choice of the computer player (ComputerPlayer.determineBestMove).
+ * <p>
+ * The players use the default engine without an opening book, so every call is a complete search; in the endgame
+ * phase the positions are close enough to the end to be solved exactly. Each call searches the next position of the corpus.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ComputerPlayerBenchmark {
+
+	/**
+	 * The phase of the positions
+	 */
+	@Param({"opening", "midgame", "endgame"})
+	public String phase;
+
+	// Declare fields of object
+	private Object[] grids;
+	private Object light;
+	private Object dark;
+	private int next;
+
+	/**
+	 * Create the positions and the players
+	 */
+	@Setup
+	public void setup() {
+		grids = Positions.create(phase);
+		light = Reversi.newComputerPlayer(1);
+		dark = Reversi.newComputerPlayer(-1);
+	}
+
+	/**
+	 * @return The move chosen
+	 */
+	@Benchmark
+	public int[] determineBestMove() {
+		Object grid = grids[next];
+		next = (next + 1) % grids.length;
+		return Reversi.determineBestMove(Reversi.getSideToMove(grid) == 1 ? light : dark, grid);
+	}
+
+}
@@ -0,0 +1,134 @@
+package reversi.benchmarks;
+
+// Import Java libraries
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class representing the benchmarks of the rules engine (Grid).
+ * <p>
+ * Every benchmark sweeps the whole corpus of one phase (see Positions), so the scores are the time per sweep:
+ * checkMoveValid and getMoveScore ask about every field of every position, makeMove plays and takes back every valid move
+ * of every position, and checkValidMoves and getResults are called once per position.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark {
+
+	/**
+	 * The phase of the positions
+	 */
+	@Param({"opening", "midgame", "endgame"})
+	public String phase;
+
+	// Declare fields of object
+	private Object[] grids;
+	private int[] colours;
+
+	/**
+	 * Create the positions
+	 */
+	@Setup
+	public void setup() {
+		grids = Positions.create(phase);
+		colours = new int[grids.length];
+		for(int i = 0; i < grids.length; i++) {
+			colours[i] = Reversi.getSideToMove(grids[i]);
+		}
+	}
+
+	/**
+	 * @return The number of valid moves of the corpus
+	 */
+	@Benchmark
+	public int checkMoveValid() {
+		int valid = 0;
+		for(int i = 0; i < grids.length; i++) {
+			for(int y = 0; y < 8; y++) {
+				for(int x = 0; x < 8; x++) {
+					if(Reversi.checkMoveValid(grids[i], x, y, colours[i])) {
+						valid++;
+					}
+				}
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * @return The sum of the tokens returned by makeMove
+	 */
+	@Benchmark
+	public int makeMove() {
+		int sum = 0;
+		for(int i = 0; i < grids.length; i++) {
+			for(long moves = Reversi.legalMoves(grids[i], colours[i]); moves != 0; moves &= moves - 1) {
+				int square = Long.numberOfTrailingZeros(moves);
+				int token = Reversi.makeMove(grids[i], square % 8, square / 8, colours[i]);
+				Reversi.unmakeMove(grids[i], token);
+				sum += token;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return The sum of the scores of all fields of the corpus
+	 */
+	@Benchmark
+	public int getMoveScore() {
+		int sum = 0;
+		for(int i = 0; i < grids.length; i++) {
+			for(int y = 0; y < 8; y++) {
+				for(int x = 0; x < 8; x++) {
+					sum += Reversi.getMoveScore(grids[i], x, y, colours[i]);
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return The number of positions with a valid move for either colour
+	 */
+	@Benchmark
+	public int checkValidMoves() {
+		int count = 0;
+		for(int i = 0; i < grids.length; i++) {
+			if(Reversi.checkValidMoves(grids[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param blackhole Consumes the results so they are not optimised away
+	 */
+	@Benchmark
+	public void getResults(Blackhole blackhole) {
+		for(int i = 0; i < grids.length; i++) {
+			blackhole.consume(Reversi.getResults(grids[i]));
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package reversi.benchmarks;
+
+// Import Java libraries
+import java.util.Random;
+
+/**
+ * Class representing the corpus of positions the benchmarks run on.
+ * <p>
+ * Positions are reached by random valid moves from the Othello start position with a fixed seed, so every run
+ * (and every release) benchmarks the same positions. A phase of the game is given by the number of pieces on the board.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class Positions {
+
+	/**
+	 * The number of positions of each phase
+	 */
+	public static final int SIZE = 64;
+
+	/**
+	 * Utility class, not to be instantiated
+	 */
+	private Positions() {
+	}
+
+	/**
+	 * Get the number of pieces of the positions of a phase
+	 * @param phase opening, midgame or endgame
+	 * @return The number of pieces on the board
+	 */
+	public static int pieces(String phase) {
+		switch (phase) {
+		case "opening":
+			return 12;
+		case "midgame":
+			return 32;
+		case "endgame":
+			return 50;
+		default:
+			throw new IllegalArgumentException("Unknown phase " + phase);
+		}
+	}
+
+	/**
+	 * Create the positions of a phase
+	 * @param phase opening, midgame or endgame
+	 * @return SIZE grids, each with the colour to move set; the colour to move has a valid move
+	 */
+	public static Object[] create(String phase) {
+		int pieces = pieces(phase);
+		Random random = new Random(pieces);
+		Object[] grids = new Object[SIZE];
+		for(int i = 0; i < SIZE; i++) {
+			Object grid;
+			do {
+				grid = play(random, pieces);
+			} while(grid == null);
+			grids[i] = grid;
+		}
+		return grids;
+	}
+
+	/**
+	 * Play random moves from the start position
+	 * @param random The random numbers
+	 * @param pieces The number of pieces to stop at
+	 * @return The grid, or null if the game ended before
+	 */
+	private static Object play(Random random, int pieces) {
+		Object grid = Reversi.newGrid();
+		Reversi.initialiseOthello(grid);
+		int colour = -1;
+		while(true) {
+			long moves = Reversi.legalMoves(grid, colour);
+			if(moves == 0) {
+				colour = -colour;
+				moves = Reversi.legalMoves(grid, colour);
+				if(moves == 0) {
+					return null;
+				}
+			}
+			if(Long.bitCount(Reversi.getPieces(grid, 1) | Reversi.getPieces(grid, -1)) >= pieces) {
+				Reversi.setSideToMove(grid, colour);
+				return Reversi.copyGrid(grid);
+			}
+			for(int i = random.nextInt(Long.bitCount(moves)); i > 0; i--) {
+				moves &= moves - 1;
+			}
+			int square = Long.numberOfTrailingZeros(moves);
+			Reversi.makeMove(grid, square % 8, square / 8, colour);
+			colour = -colour;
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package reversi.benchmarks;
+
+// Import Java libraries
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Class representing the access of the benchmarks to the classes of the game.
+ * <p>
+ * The game lives in the default package, which code in a named package (as JMH requires for benchmarks) cannot refer to.
+ * The methods are therefore bound once as method handles with the game types erased to Object. The handles are constants,
+ * so the JIT compiler inlines the calls and the benchmarks measure the game code itself.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class Reversi {
+
+	// Handles of the methods benchmarked or used to set up positions
+	private static final MethodHandle NEW_GRID;
+	private static final MethodHandle COPY_GRID;
+	private static final MethodHandle INITIALISE_OTHELLO;
+	private static final MethodHandle SET_SIDE_TO_MOVE;
+	private static final MethodHandle GET_SIDE_TO_MOVE;
+	private static final MethodHandle GET_PIECES;
+	private static final MethodHandle LEGAL_MOVES;
+	private static final MethodHandle CHECK_MOVE_VALID;
+	private static final MethodHandle MAKE_MOVE;
+	private static final MethodHandle UNMAKE_MOVE;
+	private static final MethodHandle GET_MOVE_SCORE;
+	private static final MethodHandle CHECK_VALID_MOVES;
+	private static final MethodHandle GET_RESULTS;
+	private static final MethodHandle NEW_COMPUTER_PLAYER;
+	private static final MethodHandle SET_OPENING_BOOK;
+	private static final MethodHandle DETERMINE_BEST_MOVE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> grid = Class.forName("Grid");
+			Class<?> player = Class.forName("ComputerPlayer");
+			Class<?> book = Class.forName("OpeningBook");
+
+			NEW_GRID = erase(lookup.findConstructor(grid, MethodType.methodType(void.class)));
+			COPY_GRID = erase(lookup.findConstructor(grid, MethodType.methodType(void.class, grid)));
+			INITIALISE_OTHELLO = erase(lookup.findVirtual(grid, "initialiseOthello", MethodType.methodType(void.class)));
+			SET_SIDE_TO_MOVE = erase(lookup.findVirtual(grid, "setSideToMove", MethodType.methodType(void.class, int.class)));
+			GET_SIDE_TO_MOVE = erase(lookup.findVirtual(grid, "getSideToMove", MethodType.methodType(int.class)));
+			GET_PIECES = erase(lookup.findVirtual(grid, "getPieces", MethodType.methodType(long.class, int.class)));
+			LEGAL_MOVES = erase(lookup.findVirtual(grid, "legalMoves", MethodType.methodType(long.class, int.class)));
+			CHECK_MOVE_VALID = erase(lookup.findVirtual(grid, "checkMoveValid", MethodType.methodType(boolean.class, int.class, int.class, int.class)));
+			MAKE_MOVE = erase(lookup.findVirtual(grid, "makeMove", MethodType.methodType(int.class, int.class, int.class, int.class)));
+			UNMAKE_MOVE = erase(lookup.findVirtual(grid, "unmakeMove", MethodType.methodType(void.class, int.class)));
+			GET_MOVE_SCORE = erase(lookup.findVirtual(grid, "getMoveScore", MethodType.methodType(int.class, int.class, int.class, int.class)));
+			CHECK_VALID_MOVES = erase(lookup.findVirtual(grid, "checkValidMoves", MethodType.methodType(boolean.class)));
+			GET_RESULTS = erase(lookup.findVirtual(grid, "getResults", MethodType.methodType(int[].class)));
+			NEW_COMPUTER_PLAYER = erase(lookup.findConstructor(player, MethodType.methodType(void.class, int.class)));
+			SET_OPENING_BOOK = erase(lookup.findVirtual(player, "setOpeningBook", MethodType.methodType(void.class, book)));
+			DETERMINE_BEST_MOVE = erase(lookup.findVirtual(player, "determineBestMove", MethodType.methodType(int[].class, grid)));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Utility class, not to be instantiated
+	 */
+	private Reversi() {
+	}
+
+	/**
+	 * Replace every game type in the type of a handle by Object
+	 * @param handle The handle
+	 * @return The handle with the erased type
+	 */
+	private static MethodHandle erase(MethodHandle handle) {
+		MethodType type = handle.type();
+		for(int i = 0; i < type.parameterCount(); i++) {
+			if(!type.parameterType(i).isPrimitive()) {
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		if(!type.returnType().isPrimitive() && !type.returnType().isArray()) {
+			type = type.changeReturnType(Object.class);
+		}
+		return handle.asType(type);
+	}
+
+	/**
+	 * Rethrow an exception thrown by a handle, which the game methods only do for programming errors
+	 * @param t The exception
+	 * @return Never returns
+	 */
+	private static RuntimeException rethrow(Throwable t) {
+		if(t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if(t instanceof Error) {
+			throw (Error) t;
+		}
+		throw new IllegalStateException(t);
+	}
+
+	/**
+	 * @return A new empty grid
+	 */
+	public static Object newGrid() {
+		try {
+			return (Object) NEW_GRID.invokeExact();
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid to copy
+	 * @return A copy of the position of the grid
+	 */
+	public static Object copyGrid(Object grid) {
+		try {
+			return (Object) COPY_GRID.invokeExact(grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid to set up with the Othello start position
+	 */
+	public static void initialiseOthello(Object grid) {
+		try {
+			INITIALISE_OTHELLO.invokeExact(grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid
+	 * @param colour The colour to move next
+	 */
+	public static void setSideToMove(Object grid, int colour) {
+		try {
+			SET_SIDE_TO_MOVE.invokeExact(grid, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid
+	 * @return The colour to move next
+	 */
+	public static int getSideToMove(Object grid) {
+		try {
+			return (int) GET_SIDE_TO_MOVE.invokeExact(grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid
+	 * @param colour The colour
+	 * @return The bitboard of the pieces of the colour
+	 */
+	public static long getPieces(Object grid, int colour) {
+		try {
+			return (long) GET_PIECES.invokeExact(grid, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * @param grid The grid
+	 * @param colour The colour to play
+	 * @return The bitboard of the valid moves
+	 */
+	public static long legalMoves(Object grid, int colour) {
+		try {
+			return (long) LEGAL_MOVES.invokeExact(grid, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.checkMoveValid() on a grid
+	 */
+	public static boolean checkMoveValid(Object grid, int x, int y, int colour) {
+		try {
+			return (boolean) CHECK_MOVE_VALID.invokeExact(grid, x, y, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.makeMove() on a grid
+	 */
+	public static int makeMove(Object grid, int x, int y, int colour) {
+		try {
+			return (int) MAKE_MOVE.invokeExact(grid, x, y, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.unmakeMove() on a grid
+	 */
+	public static void unmakeMove(Object grid, int token) {
+		try {
+			UNMAKE_MOVE.invokeExact(grid, token);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.getMoveScore() on a grid
+	 */
+	public static int getMoveScore(Object grid, int x, int y, int colour) {
+		try {
+			return (int) GET_MOVE_SCORE.invokeExact(grid, x, y, colour);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.checkValidMoves() on a grid
+	 */
+	public static boolean checkValidMoves(Object grid) {
+		try {
+			return (boolean) CHECK_VALID_MOVES.invokeExact(grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call Grid.getResults() on a grid
+	 */
+	public static int[] getResults(Object grid) {
+		try {
+			return (int[]) GET_RESULTS.invokeExact(grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Create a computer player with the default engine, playing without an opening book so every move is searched
+	 * @param colour The colour of the player
+	 * @return The player
+	 */
+	public static Object newComputerPlayer(int colour) {
+		try {
+			Object player = (Object) NEW_COMPUTER_PLAYER.invokeExact(colour);
+			SET_OPENING_BOOK.invokeExact(player, (Object) null);
+			return player;
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/**
+	 * Call ComputerPlayer.determineBestMove() of a player
+	 */
+	public static int[] determineBestMove(Object player, Object grid) {
+		try {
+			return (int[]) DETERMINE_BEST_MOVE.invokeExact(player, grid);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+}
@@ -0,0 +1,1094 @@
+// Import Java libraries
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class representing a negamax search with alpha-beta pruning to a fixed depth.
+ * <p>
+ * Moves are played and taken back (makeMove/unmakeMove) on the grid that is searched, so no copies of the grid are made during the search.
+ * Results are cached in an optional transposition table, which also supplies the move to try first.
+ * The other moves are ordered by killers, history, mobility and shallow searches (see MoveOrdering).
+ * Positions are evaluated by the pattern weights on the classpath (see PatternEvaluator), or by corners, mobility and stable discs if there are none.
+ * <p>
+ * With more than one thread the engine runs a Lazy SMP search: helper threads search copies of the root position
+ * with varied depths and root move orders while the main search runs, and all threads share one transposition table.
+ * The helpers only fill the table; the move is always taken from the main search.
+ * <p>
+ * analyse() searches every root move with a full window instead, giving a score and a principal variation for each (multi-PV).
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class AlphaBetaEngine implements SearchEngine {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = -3061586813413596604L;
+
+	/**
+	 * The four corner fields
+	 */
+	private static final long CORNERS = 0x8100000000000081L;
+
+	/**
+	 * Scores of finished games are scaled by this factor so they always outweigh heuristic scores
+	 */
+	private static final int WIN_SCALE = 1000;
+
+	/**
+	 * Bound larger than any possible score
+	 */
+	private static final int INFINITY = 1000000;
+
+	/**
+	 * The deepest possible search (every field filled)
+	 */
+	public static final int MAX_DEPTH = 60;
+
+	/**
+	 * A search limited to a share of the processor works in slices of this many nanoseconds before pausing
+	 */
+	private static final long SLICE = 10000000L;
+
+	/**
+	 * Positions with at most this many pieces are stored in the transposition table under their canonical form,
+	 * so symmetric positions reached by different moves early in the game share one entry
+	 */
+	private static final int CANONICAL_PIECES = 14;
+
+	/**
+	 * The memory budget of the engine's own transposition table in MB, used if a parallel search or an analysis is started without one
+	 */
+	public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+	/**
+	 * The number of moves the depth history keeps, the oldest are dropped beyond it
+	 */
+	public static final int DEPTH_HISTORY_LIMIT = 1024;
+
+	// Search settings
+	private int depth;
+	private long nodeLimit;
+	private long timeLimit;
+	private int threads = 1;
+	private int hashMegabytes;
+	private transient TranspositionTable table;
+	private transient TranspositionTable sharedTable;
+	private boolean patternsDisabled;
+	private transient PatternEvaluator evaluator;
+	private int changedHeuristics;
+	private transient MoveOrdering ordering;
+
+	// Statistics of the last search
+	private long nodes;
+	private long time;
+	private boolean aborted;
+	private int score;
+	private int depthReached;
+	private transient ArrayList<Integer> depthHistory;
+
+	// State of the running search
+	private transient long deadline;
+	private transient int rootScore;
+	private transient volatile boolean stopRequested;
+	private transient volatile boolean stopped;
+	private transient volatile Thread searchThread;
+	private transient double cpuShare;
+	private transient long sliceStart;
+	private transient int rootOffset;
+	private transient int rootDepth;
+
+	// Helper engines and threads of the parallel search
+	private transient AlphaBetaEngine[] helpers;
+	private transient ExecutorService pool;
+
+	/**
+	 * Constructor for an AlphaBetaEngine searching to the given depth without a node limit
+	 * @param pDepth The number of moves to look ahead
+	 */
+	public AlphaBetaEngine(int pDepth) {
+		this(pDepth, 0);
+	}
+
+	/**
+	 * Constructor for an AlphaBetaEngine
+	 * @param pDepth The number of moves to look ahead
+	 * @param pNodeLimit The maximum number of positions to visit per search (0 for no limit)
+	 */
+	public AlphaBetaEngine(int pDepth, long pNodeLimit) {
+		this(pDepth, pNodeLimit, 0);
+	}
+
+	/**
+	 * Create an AlphaBetaEngine using iterative deepening with a time limit per move
+	 * @param pTimeLimit The time limit per move in milliseconds
+	 * @param pHashMegabytes The memory budget of the transposition table in MB (0 for no table)
+	 * @return The engine
+	 */
+	public static AlphaBetaEngine withTimeLimit(long pTimeLimit, int pHashMegabytes) {
+		AlphaBetaEngine engine = new AlphaBetaEngine(MAX_DEPTH, 0, pHashMegabytes);
+		engine.setTimeLimit(pTimeLimit);
+		return engine;
+	}
+
+	/**
+	 * Constructor for an AlphaBetaEngine with a transposition table
+	 * @param pDepth The number of moves to look ahead
+	 * @param pNodeLimit The maximum number of positions to visit per search (0 for no limit)
+	 * @param pHashMegabytes The memory budget of the transposition table in MB (0 for no table)
+	 */
+	public AlphaBetaEngine(int pDepth, long pNodeLimit, int pHashMegabytes) {
+		depth = pDepth;
+		nodeLimit = pNodeLimit;
+		hashMegabytes = pHashMegabytes;
+	}
+
+	/**
+	 * Search all valid moves and return the best one.
+	 * With a time limit or a transposition table the search deepens one move at a time (up to the configured depth)
+	 * until the time or node limit runs out, and the best move of the last completed iteration is returned.
+	 * Otherwise the moves are searched to the configured depth directly; if the node limit is reached,
+	 * the best move among the completely searched moves is returned.
+	 */
+	@Override
+	public int[] findBestMove(Grid grid, int colour) {
+		long start = System.nanoTime();
+		nodes = 0;
+		aborted = stopped;
+		deadline = timeLimit > 0 ? start + timeLimit * 1000000L : 0;
+		stopRequested = false;
+		searchThread = Thread.currentThread();
+		sliceStart = start;
+		getEvaluator();
+		getMoveOrdering().newSearch();
+
+		int side = grid.getSideToMove();
+		grid.setSideToMove(colour);
+
+		// A parallel search without a configured table uses the engine's own table, which is neither saved nor used by single-threaded searches
+		TranspositionTable table = getTranspositionTable();
+		boolean shared = threads > 1 && table == null;
+		if(shared) {
+			if(sharedTable == null) {
+				sharedTable = new TranspositionTable(DEFAULT_HASH_MEGABYTES);
+			}
+			table = sharedTable;
+			this.table = table;
+		}
+		if(table != null) {
+			table.newSearch();
+		}
+
+		int[] move = {-1,-1};
+		int reached = 0;
+		try {
+			// Start the helper threads of a parallel search
+			Future<?>[] running = startHelpers(grid, colour);
+
+			int bestSquare = TranspositionTable.NO_MOVE;
+
+			if(timeLimit > 0 || table != null) {
+				// Iterative deepening: searching deeper than the number of empty fields cannot change the result
+				int empty = 64 - Long.bitCount(grid.getPieces(1) | grid.getPieces(-1));
+				for(int d = 1; d <= Math.min(depth, empty); d++) {
+					int square = searchRoot(grid, colour, d, bestSquare, false);
+					if(aborted) {
+						break;
+					}
+					bestSquare = square;
+					reached = d;
+					score = rootScore;
+				}
+			}
+			else {
+				bestSquare = searchRoot(grid, colour, depth, TranspositionTable.NO_MOVE, true);
+				reached = aborted ? 0 : depth;
+				score = rootScore;
+			}
+
+			// Fall back to the first valid move if the search was aborted before any move was searched
+			if(bestSquare == TranspositionTable.NO_MOVE && grid.legalMoves(colour) != 0) {
+				bestSquare = Long.numberOfTrailingZeros(grid.legalMoves(colour));
+			}
+			if(bestSquare != TranspositionTable.NO_MOVE) {
+				move[0] = Bitboard.x(bestSquare);
+				move[1] = Bitboard.y(bestSquare);
+			}
+
+			// Stop the helper threads and count their positions too
+			stopHelpers(running);
+			searchThread = null;
+		} finally {
+			if(shared) {
+				this.table = null;
+			}
+		}
+
+		grid.setSideToMove(side);
+		depthReached = reached;
+		List<Integer> history = getDepthHistory();
+		if(history.size() == DEPTH_HISTORY_LIMIT) {
+			history.remove(0);
+		}
+		history.add(reached);
+		time = System.nanoTime() - start;
+		return move;
+	}
+
+	/**
+	 * Search all valid moves of the root position to a fixed depth
+	 * @param grid The grid to search
+	 * @param colour The colour to move
+	 * @param depth The depth to search to
+	 * @param firstMove The move to search first (e.g. the best move of the previous iteration), or NO_MOVE
+	 * @param keepPartial Whether to return the best move found so far if the search is aborted
+	 * @return The field index of the best move (NO_MOVE if there is none); its score is stored in rootScore
+	 */
+	private int searchRoot(Grid grid, int colour, int depth, int firstMove, boolean keepPartial) {
+		rootDepth = depth;
+		int alpha = -INFINITY;
+		int bestSquare = TranspositionTable.NO_MOVE;
+
+		long moves = grid.legalMoves(colour);
+		if(firstMove == TranspositionTable.NO_MOVE) {
+			firstMove = hashMove(grid, moves);
+		}
+
+		while(moves != 0) {
+			int square;
+			if(firstMove != TranspositionTable.NO_MOVE && (moves & (1L << firstMove)) != 0) {
+				square = firstMove;
+			}
+			else {
+				square = (Long.numberOfTrailingZeros(Long.rotateRight(moves, rootOffset)) + rootOffset) & 63;
+			}
+			moves &= ~(1L << square);
+
+			// Play, search and take back the move
+			int token = grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+			int score = -negamax(grid, -colour, depth - 1, -INFINITY, -alpha);
+			grid.unmakeMove(token);
+
+			if(aborted) {
+				break;
+			}
+
+			// Keep the best move (always keep the first so a move is returned even if all moves lose)
+			if(score > alpha || bestSquare == TranspositionTable.NO_MOVE) {
+				alpha = score;
+				bestSquare = square;
+			}
+		}
+
+		rootScore = alpha;
+		return aborted && !keepPartial ? TranspositionTable.NO_MOVE : bestSquare;
+	}
+
+	/**
+	 * Negamax search with alpha-beta pruning
+	 * @param grid The grid to search
+	 * @param colour The colour to move
+	 * @param depth The remaining depth
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @return The score of the position from the point of view of the colour to move
+	 */
+	private int negamax(Grid grid, int colour, int depth, int alpha, int beta) {
+
+		// Stop once the node limit is reached or the time is up (the clock is only read every 1024 positions)
+		nodes++;
+		if(nodeLimit > 0 && nodes >= nodeLimit) {
+			aborted = true;
+		}
+		if((nodes & 1023) == 0) {
+			if(stopRequested || stopped || (deadline != 0 && System.nanoTime() >= deadline)) {
+				aborted = true;
+			}
+			else if(cpuShare > 0 && cpuShare < 1) {
+				throttle();
+			}
+		}
+		if(aborted) {
+			return 0;
+		}
+
+		long moves = grid.legalMoves(colour);
+
+		// Pass, or score the game if neither player can move
+		if(moves == 0) {
+			if(grid.legalMoves(-colour) == 0) {
+				return WIN_SCALE * (Long.bitCount(grid.getPieces(colour)) - Long.bitCount(grid.getPieces(-colour)));
+			}
+			int token = grid.pass();
+			int score = -negamax(grid, -colour, depth, -beta, -alpha);
+			grid.unmakeMove(token);
+			return score;
+		}
+
+		if(depth <= 0) {
+			return evaluate(grid, colour, moves);
+		}
+
+		// Use the stored result if it was searched deep enough, otherwise try its best move first
+		int hashMove = TranspositionTable.NO_MOVE;
+		int symmetry = table != null ? symmetry(grid) : 0;
+		if(table != null) {
+			long entry = table.probe(key(grid, symmetry));
+			if(entry != TranspositionTable.MISS) {
+				int score = TranspositionTable.score(entry);
+				int bound = TranspositionTable.bound(entry);
+				if(TranspositionTable.depth(entry) >= depth
+						&& (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha))) {
+					return score;
+				}
+				hashMove = fromTable(TranspositionTable.move(entry), symmetry);
+			}
+		}
+
+		// Order the moves, scoring them by a shallow search first where that pays off
+		int ply = rootDepth - depth;
+		int count = ordering.generate(ply, depth, colour, grid.getPieces(colour), grid.getPieces(-colour), moves, hashMove);
+		if(ordering.useShallowSearch(depth)) {
+			int shallowDepth = MoveOrdering.shallowDepth(depth);
+			for(int i = 0; i < count && !aborted; i++) {
+				if(ordering.isSorted(ply, i)) {
+					int square = ordering.getMove(ply, i);
+					int token = grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+					ordering.setShallowScore(ply, i, -negamax(grid, -colour, shallowDepth - 1, -INFINITY, INFINITY));
+					grid.unmakeMove(token);
+				}
+			}
+		}
+
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMove = TranspositionTable.NO_MOVE;
+
+		for(int i = 0; i < count; i++) {
+			int square = ordering.next(ply, i, count);
+
+			// Play, search and take back the move
+			int token = grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+			int score = -negamax(grid, -colour, depth - 1, -beta, -alpha);
+			grid.unmakeMove(token);
+
+			if(score > best) {
+				best = score;
+				bestMove = square;
+				if(score > alpha) {
+					alpha = score;
+					if(alpha >= beta) {
+						ordering.cutoff(ply, i, depth, colour);
+						break;
+					}
+				}
+			}
+		}
+
+		// Results of an aborted search are incomplete and must not be stored
+		if(table != null && !aborted) {
+			int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+			table.store(key(grid, symmetry), depth, bound, best, toTable(bestMove, symmetry));
+		}
+
+		return best;
+	}
+
+	/**
+	 * Start the helper threads of a parallel search, each searching its own copy of the grid
+	 * @param grid The grid of the root position
+	 * @param colour The colour to move
+	 * @return The running helper searches (empty if the search is not parallel)
+	 */
+	private Future<?>[] startHelpers(Grid grid, int colour) {
+		if(threads <= 1) {
+			return new Future<?>[0];
+		}
+		if(helpers == null || helpers.length != threads - 1) {
+			if(pool != null) {
+				pool.shutdownNow();
+			}
+			helpers = new AlphaBetaEngine[threads - 1];
+			pool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "AlphaBetaEngine helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		int empty = 64 - Long.bitCount(grid.getPieces(1) | grid.getPieces(-1));
+		int maxDepth = Math.min(depth + 1, empty);
+		Future<?>[] running = new Future<?>[threads - 1];
+		for(int i = 0; i < helpers.length; i++) {
+			AlphaBetaEngine helper = new AlphaBetaEngine(maxDepth);
+			helper.setTranspositionTable(table);
+			helper.setEvaluator(evaluator);
+			helper.setHeuristics(ordering.getHeuristics());
+			helper.rootOffset = 7 * (i + 1);
+			helpers[i] = helper;
+
+			// Every other helper starts one move deeper, so the threads spread over neighbouring depths
+			int startDepth = 1 + (i & 1);
+			Grid copy = new Grid(grid);
+			running[i] = pool.submit(() -> helper.helperSearch(copy, colour, startDepth, maxDepth));
+		}
+		return running;
+	}
+
+	/**
+	 * Iterative deepening run by a helper thread until it reaches its maximum depth or is stopped
+	 * @param grid The copy of the root position
+	 * @param colour The colour to move
+	 * @param startDepth The first depth to search
+	 * @param maxDepth The last depth to search
+	 */
+	private void helperSearch(Grid grid, int colour, int startDepth, int maxDepth) {
+		nodes = 0;
+		aborted = false;
+		getMoveOrdering();
+		for(int d = startDepth; d <= maxDepth && !aborted; d++) {
+			searchRoot(grid, colour, d, TranspositionTable.NO_MOVE, false);
+		}
+	}
+
+	/**
+	 * Stop the helper threads, wait for them to finish and add their positions to the node count
+	 * @param running The running helper searches
+	 */
+	private void stopHelpers(Future<?>[] running) {
+		for(int i = 0; i < running.length; i++) {
+			helpers[i].stopRequested = true;
+		}
+		for(int i = 0; i < running.length; i++) {
+			try {
+				running[i].get();
+			} catch (Exception e) {
+				// A failed helper only means fewer table entries, the main search result is unaffected
+			}
+			nodes += helpers[i].nodes;
+			ordering.addCounters(helpers[i].ordering);
+		}
+	}
+
+	/**
+	 * Pause the search once it has worked for a slice, so that it uses no more than its share of the processor on average
+	 */
+	private void throttle() {
+		long now = System.nanoTime();
+		long worked = now - sliceStart;
+		if(worked >= SLICE) {
+			long pause = (long) (worked * (1 - cpuShare) / cpuShare);
+			long end = now + pause;
+			while(!stopRequested && !stopped && (pause = end - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, pause);
+			}
+			sliceStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Ask the running search (if any) and every later search to stop as soon as possible, until resume() is called.
+	 * findBestMove() then returns the best move of the last completed iteration, as if the time had run out
+	 * (or the first valid move if no iteration was completed). May be called from any thread; as the request is kept,
+	 * it also stops a search that is only just starting.
+	 */
+	public void stop() {
+		stopped = true;
+		Thread thread = searchThread;
+		if(thread != null) {
+			LockSupport.unpark(thread);
+		}
+		AlphaBetaEngine[] running = helpers;
+		if(running != null) {
+			for(AlphaBetaEngine helper : running) {
+				if(helper != null) {
+					helper.stopRequested = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allow searches again after stop()
+	 */
+	public void resume() {
+		stopped = false;
+	}
+
+	/**
+	 * Analyse every valid move of a position with a time budget, see analyse(Grid, int, long, AnalysisListener)
+	 * @param grid The grid to analyse (left unchanged)
+	 * @param colour The colour to move
+	 * @param budget The time budget in milliseconds
+	 * @return The results for all valid moves, best first (empty if there is no valid move)
+	 */
+	public List<MoveAnalysis> analyse(Grid grid, int colour, long budget) {
+		return analyse(grid, colour, budget, null);
+	}
+
+	/**
+	 * Analyse every valid move of a position. Each move is deepened iteratively with a full search window, so its score is exact
+	 * for the depth reached and not just a bound. The moves are searched in parallel on the configured number of threads,
+	 * taking turns one depth at a time, and share the transposition table. A move is finished once the time budget is used up
+	 * or it has been searched to the configured depth or the end of the game, and is then passed to the listener at once.
+	 * The listener also receives the result of every completed depth, so partial results arrive while the moves are still being searched.
+	 * @param grid The grid to analyse (left unchanged)
+	 * @param colour The colour to move
+	 * @param budget The time budget in milliseconds (every move is searched to at least depth 1)
+	 * @param listener The listener notified of every finished move (on the search threads), or null
+	 * @return The results for all valid moves, best first (empty if there is no valid move)
+	 */
+	public List<MoveAnalysis> analyse(Grid grid, int colour, long budget, AnalysisListener listener) {
+		long start = System.nanoTime();
+		getEvaluator();
+
+		// Without a configured table the analysis shares the engine's own table, which is not saved
+		TranspositionTable table = getTranspositionTable();
+		if(table == null) {
+			if(sharedTable == null) {
+				sharedTable = new TranspositionTable(DEFAULT_HASH_MEGABYTES);
+			}
+			table = sharedTable;
+		}
+		table.newSearch();
+
+		long moves = grid.legalMoves(colour);
+		int empty = 64 - Long.bitCount(grid.getPieces(1) | grid.getPieces(-1));
+		List<MoveAnalysis> results = Collections.synchronizedList(new ArrayList<MoveAnalysis>());
+		CountDownLatch finished = new CountDownLatch(Long.bitCount(moves));
+		ExecutorService analysisPool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "AlphaBetaEngine analysis");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// Every root move is searched by its own engine on its own copy of the grid
+		RootMove[] rootMoves = new RootMove[Long.bitCount(moves)];
+		for(int i = 0; moves != 0; moves &= moves - 1, i++) {
+			int square = Long.numberOfTrailingZeros(moves);
+			Grid copy = new Grid(grid);
+			copy.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+
+			AlphaBetaEngine engine = new AlphaBetaEngine(depth);
+			engine.setTranspositionTable(table);
+			engine.setEvaluator(evaluator);
+			engine.setHeuristics(getMoveOrdering().getHeuristics());
+			engine.getMoveOrdering();
+			rootMoves[i] = new RootMove(engine, copy, colour, square, Math.min(depth, empty), start + budget * 1000000L,
+					empty, analysisPool, finished, results, listener);
+			analysisPool.execute(rootMoves[i]);
+		}
+
+		// Wait for all moves; if this thread is interrupted, stop the searches and return the results reached so far
+		boolean interrupted = false;
+		while(true) {
+			try {
+				finished.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+				for(RootMove rootMove : rootMoves) {
+					rootMove.engine.stopRequested = true;
+				}
+			}
+		}
+		analysisPool.shutdown();
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		nodes = 0;
+		for(RootMove rootMove : rootMoves) {
+			nodes += rootMove.engine.nodes;
+		}
+		time = System.nanoTime() - start;
+
+		List<MoveAnalysis> sorted = new ArrayList<MoveAnalysis>(results);
+		sorted.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+		return sorted;
+	}
+
+	/**
+	 * Follow the best moves stored in the transposition table from a position
+	 * @param grid The grid (left unchanged)
+	 * @param colour The colour to move
+	 * @param first The move leading to the position, which starts the line
+	 * @param length The maximum length of the line, including the first move
+	 * @return The field indices of the line (Grid.PASS for a pass)
+	 */
+	private int[] principalVariation(Grid grid, int colour, int first, int length) {
+		int[] line = new int[Math.max(1, length)];
+		line[0] = first;
+		int count = 1;
+		int token = 0;
+		while(count < line.length) {
+			long moves = grid.legalMoves(colour);
+			int move;
+			if(moves == 0) {
+				if(grid.legalMoves(-colour) == 0) {
+					break;
+				}
+				move = Grid.PASS;
+			}
+			else {
+				int symmetry = symmetry(grid);
+				long entry = table.probe(key(grid, symmetry));
+				move = entry == TranspositionTable.MISS ? TranspositionTable.NO_MOVE : fromTable(TranspositionTable.move(entry), symmetry);
+				if(move == TranspositionTable.NO_MOVE || (moves & (1L << move)) == 0) {
+					break;
+				}
+			}
+
+			// Play the move, remembering the first token to take the whole line back
+			int played = move == Grid.PASS ? grid.pass() : grid.makeMove(Bitboard.x(move), Bitboard.y(move), colour);
+			if(token == 0) {
+				token = played;
+			}
+			line[count++] = move;
+			colour = -colour;
+		}
+		if(token != 0) {
+			grid.unmakeMove(token);
+		}
+		return Arrays.copyOf(line, count);
+	}
+
+	/**
+	 * Class representing the analysis of one root move, searched one depth per run so the root moves take turns on the threads
+	 */
+	private static final class RootMove implements Runnable {
+
+		// The search of the move
+		private final AlphaBetaEngine engine;
+		private final Grid grid;
+		private final int colour;
+		private final int square;
+		private final int maxDepth;
+		private final long deadline;
+		private final int empty;
+
+		// The shared state of the analysis
+		private final ExecutorService pool;
+		private final CountDownLatch finished;
+		private final List<MoveAnalysis> results;
+		private final AnalysisListener listener;
+
+		// The last completed depth
+		private int searched;
+		private int score;
+		private int[] variation;
+
+		// Whether the result has been reported
+		private boolean done;
+
+		/**
+		 * Constructor for the analysis of a root move
+		 * @param pEngine The engine searching the move
+		 * @param pGrid A copy of the grid with the move made
+		 * @param pColour The colour playing the move
+		 * @param pSquare The field of the move
+		 * @param pMaxDepth The depth to search to at most, counting the move
+		 * @param pDeadline The time (System.nanoTime()) at which the analysis ends
+		 * @param pEmpty The number of empty fields before the move
+		 * @param pPool The threads of the analysis
+		 * @param pFinished Counted down once the move is finished
+		 * @param pResults Receives the result of the move
+		 * @param pListener Notified of the result of the move, or null
+		 */
+		RootMove(AlphaBetaEngine pEngine, Grid pGrid, int pColour, int pSquare, int pMaxDepth, long pDeadline, int pEmpty,
+				ExecutorService pPool, CountDownLatch pFinished, List<MoveAnalysis> pResults, AnalysisListener pListener) {
+			engine = pEngine;
+			grid = pGrid;
+			colour = pColour;
+			square = pSquare;
+			maxDepth = pMaxDepth;
+			deadline = pDeadline;
+			empty = pEmpty;
+			pool = pPool;
+			finished = pFinished;
+			results = pResults;
+			listener = pListener;
+			variation = new int[] {square};
+		}
+
+		/**
+		 * Search the move one depth deeper, then queue the next depth or finish the move
+		 */
+		@Override
+		public void run() {
+			try {
+				int next = searched + 1;
+				engine.aborted = false;
+				engine.deadline = next == 1 ? 0 : deadline;
+				engine.rootDepth = next;
+				int value = -engine.negamax(grid, -colour, next - 1, -INFINITY, INFINITY);
+				if(!engine.aborted) {
+					searched = next;
+					score = value;
+					variation = engine.principalVariation(grid, -colour, square, next);
+				}
+
+				if(engine.aborted || engine.stopRequested || searched >= maxDepth || System.nanoTime() >= deadline) {
+					finish();
+				}
+				else {
+					if(listener != null) {
+						listener.depthCompleted(result());
+					}
+					pool.execute(this);
+				}
+			} catch (RuntimeException e) {
+				finish();
+				throw e;
+			}
+		}
+
+		/**
+		 * @return The result of the last completed depth
+		 */
+		private MoveAnalysis result() {
+			return new MoveAnalysis(square, score, searched, searched >= empty, variation, engine.nodes);
+		}
+
+		/**
+		 * Report the result of the last completed depth, once only (also if the listener throws and run() finishes again)
+		 */
+		private void finish() {
+			if(done) {
+				return;
+			}
+			done = true;
+			MoveAnalysis analysis = result();
+			results.add(analysis);
+			try {
+				if(listener != null) {
+					listener.moveAnalysed(analysis);
+				}
+			} finally {
+				finished.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Get the best move stored in the transposition table for the current position
+	 * @param grid The grid
+	 * @param moves The valid moves
+	 * @return The field index of the move, or NO_MOVE
+	 */
+	private int hashMove(Grid grid, long moves) {
+		if(table == null) {
+			return TranspositionTable.NO_MOVE;
+		}
+		int symmetry = symmetry(grid);
+		long entry = table.probe(key(grid, symmetry));
+		if(entry == TranspositionTable.MISS) {
+			return TranspositionTable.NO_MOVE;
+		}
+		return fromTable(TranspositionTable.move(entry), symmetry);
+	}
+
+	/**
+	 * Get the symmetry under which a position is stored in the transposition table
+	 * @param grid The grid
+	 * @return The symmetry mapping the position to its canonical form early in the game, otherwise 0
+	 */
+	private static int symmetry(Grid grid) {
+		long light = grid.getPieces(1);
+		long dark = grid.getPieces(-1);
+		if(Long.bitCount(light | dark) > CANONICAL_PIECES) {
+			return 0;
+		}
+		return Bitboard.canonical(light, dark);
+	}
+
+	/**
+	 * Get the key of a position in the transposition table
+	 * @param grid The grid
+	 * @param symmetry The symmetry under which the position is stored
+	 * @return The key
+	 */
+	private static long key(Grid grid, int symmetry) {
+		if(symmetry == 0) {
+			return grid.hash();
+		}
+		return Grid.hash(Bitboard.transform(grid.getPieces(1), symmetry), Bitboard.transform(grid.getPieces(-1), symmetry), grid.getSideToMove());
+	}
+
+	/**
+	 * Map a move to the orientation it is stored in
+	 * @param move The field index of the move, or NO_MOVE
+	 * @param symmetry The symmetry under which the position is stored
+	 * @return The stored move
+	 */
+	private static int toTable(int move, int symmetry) {
+		return move == TranspositionTable.NO_MOVE ? move : Bitboard.transformSquare(move, symmetry);
+	}
+
+	/**
+	 * Map a stored move back to the board
+	 * @param move The stored move, or NO_MOVE
+	 * @param symmetry The symmetry under which the position is stored
+	 * @return The field index of the move
+	 */
+	private static int fromTable(int move, int symmetry) {
+		return move == TranspositionTable.NO_MOVE ? move : Bitboard.inverseSquare(move, symmetry);
+	}
+
+	/**
+	 * Heuristic score of a position, based on the patterns of the position or else on corners held, mobility and stable discs
+	 * @param grid The grid to evaluate
+	 * @param colour The colour to move
+	 * @param moves The valid moves of the colour to move
+	 * @return The score from the point of view of the colour to move
+	 */
+	private int evaluate(Grid grid, int colour, long moves) {
+		if(evaluator != null) {
+			// Keep the estimate below the score of any won game
+			return Math.max(1 - WIN_SCALE, Math.min(WIN_SCALE - 1, evaluator.evaluate(grid, colour)));
+		}
+		long own = grid.getPieces(colour);
+		long opponent = grid.getPieces(-colour);
+		int corners = Long.bitCount(own & CORNERS) - Long.bitCount(opponent & CORNERS);
+		int mobility = Long.bitCount(moves) - Long.bitCount(Bitboard.legalMoves(opponent, own));
+		int stable = Stability.countStable(own, opponent) - Stability.countStable(opponent, own);
+		return 25 * corners + 5 * mobility + 10 * stable;
+	}
+
+	/**
+	 * @return the depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @param depth the depth to set
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * @return the nodeLimit
+	 */
+	public long getNodeLimit() {
+		return nodeLimit;
+	}
+
+	/**
+	 * @param nodeLimit the nodeLimit to set (0 for no limit)
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Get the transposition table, creating it on first use if a memory budget is set
+	 * @return The table, or null if the engine searches without one
+	 */
+	public TranspositionTable getTranspositionTable() {
+		if(table == null && hashMegabytes > 0) {
+			table = new TranspositionTable(hashMegabytes);
+		}
+		return table;
+	}
+
+	/**
+	 * Set the transposition table, e.g. to share one table between several engines
+	 * @param table The table to use (null to search without one)
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Get the pattern evaluator, using the default weights unless set otherwise
+	 * @return The evaluator, or null if positions are evaluated by corners and mobility
+	 */
+	public PatternEvaluator getEvaluator() {
+		if(evaluator == null && !patternsDisabled) {
+			evaluator = PatternEvaluator.getDefault();
+		}
+		return evaluator;
+	}
+
+	/**
+	 * @return whether positions are evaluated by corners and mobility instead of patterns
+	 */
+	public boolean isPatternsDisabled() {
+		return patternsDisabled;
+	}
+
+	/**
+	 * Set the pattern evaluator
+	 * @param evaluator The evaluator to set (null to evaluate by corners and mobility)
+	 */
+	public void setEvaluator(PatternEvaluator evaluator) {
+		this.evaluator = evaluator;
+		patternsDisabled = evaluator == null;
+	}
+
+	/**
+	 * Get the move ordering, creating it on first use. Its counters add up over all searches of this engine.
+	 * @return The move ordering
+	 */
+	public MoveOrdering getMoveOrdering() {
+		if(ordering == null) {
+			ordering = new MoveOrdering(MoveOrdering.DEFAULT ^ changedHeuristics);
+		}
+		return ordering;
+	}
+
+	/**
+	 * @return the move ordering heuristics (a combination of the heuristics of MoveOrdering)
+	 */
+	public int getHeuristics() {
+		return MoveOrdering.DEFAULT ^ changedHeuristics;
+	}
+
+	/**
+	 * Set the move ordering heuristics, starting a new move ordering.
+	 * Only the difference to the default heuristics is stored, so engines saved before the move ordering existed use the default.
+	 * @param heuristics The heuristics to use (a combination of the heuristics of MoveOrdering, NONE for field order)
+	 */
+	public void setHeuristics(int heuristics) {
+		changedHeuristics = MoveOrdering.DEFAULT ^ (heuristics & MoveOrdering.ALL);
+		ordering = null;
+	}
+
+	/**
+	 * @return the share of the processor the search may use (1 for all of it)
+	 */
+	public double getCpuShare() {
+		return cpuShare > 0 ? cpuShare : 1;
+	}
+
+	/**
+	 * Limit the search to a share of the processor, e.g. for searching in the background. The search then pauses regularly,
+	 * so on average it works only for this share of the time. The limit is not saved with the engine.
+	 * @param cpuShare the share to set (more than 0, 1 for no limit)
+	 */
+	public void setCpuShare(double cpuShare) {
+		if(cpuShare <= 0 || cpuShare > 1) {
+			throw new IllegalArgumentException("The share of the processor must be more than 0 and at most 1");
+		}
+		this.cpuShare = cpuShare;
+	}
+
+	/**
+	 * @return the hashMegabytes
+	 */
+	public int getHashMegabytes() {
+		return hashMegabytes;
+	}
+
+	/**
+	 * @param hashMegabytes the memory budget of the transposition table in MB to set (0 for no table). Takes effect for a new table.
+	 */
+	public void setHashMegabytes(int hashMegabytes) {
+		this.hashMegabytes = hashMegabytes;
+		table = null;
+	}
+
+	/**
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of threads. With more than one thread the search runs in parallel (Lazy SMP).
+	 */
+	@Override
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @return the timeLimit in milliseconds (0 for a fixed depth search)
+	 */
+	@Override
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * Set a time limit per move. With a time limit the search deepens iteratively, using the depth as the maximum.
+	 * @param timeLimit the timeLimit in milliseconds to set (0 for a fixed depth search)
+	 */
+	@Override
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Share a game clock evenly over the moves still to be made by one side
+	 * @param clock The time left on the clock in milliseconds
+	 * @param grid The current grid
+	 * @return The time to spend on the next move in milliseconds
+	 */
+	public static long timeForMove(long clock, Grid grid) {
+		int empty = 64 - Long.bitCount(grid.getPieces(1) | grid.getPieces(-1));
+		return Math.max(1, clock / Math.max(1, (empty + 1) / 2));
+	}
+
+	/**
+	 * @return The depth of the last completed iteration of the last search (0 if not even depth 1 completed)
+	 */
+	public int getDepthReached() {
+		return depthReached;
+	}
+
+	/**
+	 * @return The depth reached for the last moves searched by this engine (at most DEPTH_HISTORY_LIMIT), in order. Not saved with the engine.
+	 */
+	public List<Integer> getDepthHistory() {
+		if(depthHistory == null) {
+			depthHistory = new ArrayList<Integer>();
+		}
+		return depthHistory;
+	}
+
+	/**
+	 * @return Whether the last search was stopped by the node limit or the time limit
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * @return The score of the move returned by the last search
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the nodes
+	 */
+	@Override
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes per second
+	 */
+	@Override
+	public double getNodesPerSecond() {
+		return time > 0 ? nodes * 1e9 / time : 0;
+	}
+
+}
@@ -0,0 +1,25 @@
+/**
+ * Interface for objects receiving the results of an analysis as soon as each root move is finished, e.g. to display them.
+ * Intermediate results of every completed depth may be received as well.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface AnalysisListener {
+
+	/**
+	 * The analysis of a root move is finished. Called from the search threads, so implementations must be thread safe.
+	 * @param analysis The result for the move
+	 */
+	public void moveAnalysed(MoveAnalysis analysis);
+
+	/**
+	 * A root move has been searched one depth deeper and will be searched further. Does nothing by default.
+	 * Called from the search threads, so implementations must be thread safe.
+	 * @param analysis The result for the move at the depth reached so far
+	 */
+	public default void depthCompleted(MoveAnalysis analysis) {
+	}
+
+}
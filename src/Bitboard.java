@@ -0,0 +1,410 @@
+/**
+ * Class containing the bitboard operations behind the Reversi grid.
+ * <p>
+ * Each side of the board is stored as a 64 bit long, where bit (y*8 + x) is set if the side owns the field (x,y).
+ * Moves and flips are generated for all eight directions at once with Kogge-Stone style shift-and-mask fills,
+ * so no field has to be visited individually.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class Bitboard {
+
+	/**
+	 * The number of fields on the board
+	 */
+	public static final int SQUARES = 64;
+
+	/**
+	 * All fields except the A column (x == 0), used to stop eastward shifts from wrapping around
+	 */
+	public static final long NOT_A_FILE = 0xfefefefefefefefeL;
+
+	/**
+	 * All fields except the H column (x == 7), used to stop westward shifts from wrapping around
+	 */
+	public static final long NOT_H_FILE = 0x7f7f7f7f7f7f7f7fL;
+
+	/**
+	 * For each field, a bitboard of the (up to eight) fields surrounding it
+	 */
+	private static final long[] NEIGHBOURS = new long[SQUARES];
+
+	static {
+		for(int square = 0; square < SQUARES; square++) {
+			long field = 1L << square;
+			NEIGHBOURS[square] = ((field << 1 | field << 9 | field >>> 7) & NOT_A_FILE)
+					| ((field >>> 1 | field >>> 9 | field << 7) & NOT_H_FILE)
+					| field << 8 | field >>> 8;
+		}
+	}
+
+	/**
+	 * This class only offers static methods and may not be instantiated
+	 */
+	private Bitboard() {
+	}
+
+	/**
+	 * Get the field index for a pair of coordinates
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return The field index (0-63)
+	 */
+	public static int square(int x, int y) {
+		return (y << 3) | x;
+	}
+
+	/**
+	 * Get the x coordinate of a field index
+	 * @param square The field index
+	 * @return The x coordinate
+	 */
+	public static int x(int square) {
+		return square & 7;
+	}
+
+	/**
+	 * Get the y coordinate of a field index
+	 * @param square The field index
+	 * @return The y coordinate
+	 */
+	public static int y(int square) {
+		return square >>> 3;
+	}
+
+	/**
+	 * Get the fields surrounding a field
+	 * @param square The field index
+	 * @return A bitboard of the neighbouring fields
+	 */
+	public static long neighbours(int square) {
+		return NEIGHBOURS[square];
+	}
+
+	/**
+	 * Determine all fields the player may move to
+	 * @param player The bitboard of the player to move
+	 * @param opponent The bitboard of the opponent
+	 * @return A bitboard of all valid moves
+	 */
+	public static long legalMoves(long player, long opponent) {
+		long empty = ~(player | opponent);
+		long moves = 0;
+		long g;
+		long p;
+		long q;
+		
+		// In every direction, fill from the player's pieces through runs of opponent pieces (occluded fill).
+		// Shifting a filled run one further onto an empty field gives a move that closes the run.
+		// East
+		p = opponent & NOT_A_FILE;
+		g = player | (p & (player << 1));
+		q = p & (p << 1);
+		g |= q & (g << 2);
+		q &= q << 2;
+		g |= q & (g << 4);
+		moves |= ((g & opponent) << 1) & NOT_A_FILE & empty;
+		
+		// West
+		p = opponent & NOT_H_FILE;
+		g = player | (p & (player >>> 1));
+		q = p & (p >>> 1);
+		g |= q & (g >>> 2);
+		q &= q >>> 2;
+		g |= q & (g >>> 4);
+		moves |= ((g & opponent) >>> 1) & NOT_H_FILE & empty;
+		
+		// South
+		p = opponent;
+		g = player | (p & (player << 8));
+		q = p & (p << 8);
+		g |= q & (g << 16);
+		q &= q << 16;
+		g |= q & (g << 32);
+		moves |= ((g & opponent) << 8) & empty;
+		
+		// North
+		p = opponent;
+		g = player | (p & (player >>> 8));
+		q = p & (p >>> 8);
+		g |= q & (g >>> 16);
+		q &= q >>> 16;
+		g |= q & (g >>> 32);
+		moves |= ((g & opponent) >>> 8) & empty;
+		
+		// South east
+		p = opponent & NOT_A_FILE;
+		g = player | (p & (player << 9));
+		q = p & (p << 9);
+		g |= q & (g << 18);
+		q &= q << 18;
+		g |= q & (g << 36);
+		moves |= ((g & opponent) << 9) & NOT_A_FILE & empty;
+		
+		// South west
+		p = opponent & NOT_H_FILE;
+		g = player | (p & (player << 7));
+		q = p & (p << 7);
+		g |= q & (g << 14);
+		q &= q << 14;
+		g |= q & (g << 28);
+		moves |= ((g & opponent) << 7) & NOT_H_FILE & empty;
+		
+		// North east
+		p = opponent & NOT_A_FILE;
+		g = player | (p & (player >>> 7));
+		q = p & (p >>> 7);
+		g |= q & (g >>> 14);
+		q &= q >>> 14;
+		g |= q & (g >>> 28);
+		moves |= ((g & opponent) >>> 7) & NOT_A_FILE & empty;
+		
+		// North west
+		p = opponent & NOT_H_FILE;
+		g = player | (p & (player >>> 9));
+		q = p & (p >>> 9);
+		g |= q & (g >>> 18);
+		q &= q >>> 18;
+		g |= q & (g >>> 36);
+		moves |= ((g & opponent) >>> 9) & NOT_H_FILE & empty;
+		
+		return moves;
+	}
+
+	/**
+	 * Determine the pieces flipped when the player moves to a field
+	 * @param square The field index of the move
+	 * @param player The bitboard of the player to move
+	 * @param opponent The bitboard of the opponent
+	 * @return A bitboard of all opponent pieces that would be flipped (0 if the move flips nothing)
+	 */
+	public static long flips(int square, long player, long opponent) {
+		long move = 1L << square;
+		long flips = 0;
+		long g;
+		long p;
+		long q;
+		
+		// In every direction, fill from the move through the run of opponent pieces.
+		// The run is flipped if the field after it holds one of the player's pieces.
+		// East
+		p = opponent & NOT_A_FILE;
+		g = move | (p & (move << 1));
+		q = p & (p << 1);
+		g |= q & (g << 2);
+		q &= q << 2;
+		g |= q & (g << 4);
+		if(((g << 1) & NOT_A_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// West
+		p = opponent & NOT_H_FILE;
+		g = move | (p & (move >>> 1));
+		q = p & (p >>> 1);
+		g |= q & (g >>> 2);
+		q &= q >>> 2;
+		g |= q & (g >>> 4);
+		if(((g >>> 1) & NOT_H_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// South
+		p = opponent;
+		g = move | (p & (move << 8));
+		q = p & (p << 8);
+		g |= q & (g << 16);
+		q &= q << 16;
+		g |= q & (g << 32);
+		if(((g << 8) & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// North
+		p = opponent;
+		g = move | (p & (move >>> 8));
+		q = p & (p >>> 8);
+		g |= q & (g >>> 16);
+		q &= q >>> 16;
+		g |= q & (g >>> 32);
+		if(((g >>> 8) & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// South east
+		p = opponent & NOT_A_FILE;
+		g = move | (p & (move << 9));
+		q = p & (p << 9);
+		g |= q & (g << 18);
+		q &= q << 18;
+		g |= q & (g << 36);
+		if(((g << 9) & NOT_A_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// South west
+		p = opponent & NOT_H_FILE;
+		g = move | (p & (move << 7));
+		q = p & (p << 7);
+		g |= q & (g << 14);
+		q &= q << 14;
+		g |= q & (g << 28);
+		if(((g << 7) & NOT_H_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// North east
+		p = opponent & NOT_A_FILE;
+		g = move | (p & (move >>> 7));
+		q = p & (p >>> 7);
+		g |= q & (g >>> 14);
+		q &= q >>> 14;
+		g |= q & (g >>> 28);
+		if(((g >>> 7) & NOT_A_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		// North west
+		p = opponent & NOT_H_FILE;
+		g = move | (p & (move >>> 9));
+		q = p & (p >>> 9);
+		g |= q & (g >>> 18);
+		q &= q >>> 18;
+		g |= q & (g >>> 36);
+		if(((g >>> 9) & NOT_H_FILE & player) != 0) {
+			flips |= g & opponent;
+		}
+		
+		return flips;
+	}
+
+	/**
+	 * The number of symmetries of the board (rotations and reflections)
+	 */
+	public static final int SYMMETRIES = 8;
+
+	/**
+	 * Apply one of the eight symmetries of the board to a bitboard.
+	 * Symmetry s first transposes the board (swaps x and y) if bit 2 is set, then mirrors x if bit 0 is set and y if bit 1 is set;
+	 * symmetry 0 leaves the board unchanged.
+	 * @param board The bitboard
+	 * @param symmetry The symmetry (0-7)
+	 * @return The transformed bitboard
+	 */
+	public static long transform(long board, int symmetry) {
+		if((symmetry & 4) != 0) {
+			board = transpose(board);
+		}
+		if((symmetry & 1) != 0) {
+			board = mirrorX(board);
+		}
+		if((symmetry & 2) != 0) {
+			board = Long.reverseBytes(board);
+		}
+		return board;
+	}
+
+	/**
+	 * Apply one of the eight symmetries of the board to a field, as transform() does for a bitboard
+	 * @param square The field index
+	 * @param symmetry The symmetry (0-7)
+	 * @return The transformed field index
+	 */
+	public static int transformSquare(int square, int symmetry) {
+		int x = x(square);
+		int y = y(square);
+		if((symmetry & 4) != 0) {
+			int swap = x;
+			x = y;
+			y = swap;
+		}
+		if((symmetry & 1) != 0) {
+			x = 7 - x;
+		}
+		if((symmetry & 2) != 0) {
+			y = 7 - y;
+		}
+		return square(x, y);
+	}
+
+	/**
+	 * Undo a symmetry on a field, so that inverseSquare(transformSquare(square, s), s) == square
+	 * @param square The transformed field index
+	 * @param symmetry The symmetry (0-7)
+	 * @return The original field index
+	 */
+	public static int inverseSquare(int square, int symmetry) {
+		int x = x(square);
+		int y = y(square);
+		if((symmetry & 2) != 0) {
+			y = 7 - y;
+		}
+		if((symmetry & 1) != 0) {
+			x = 7 - x;
+		}
+		if((symmetry & 4) != 0) {
+			int swap = x;
+			x = y;
+			y = swap;
+		}
+		return square(x, y);
+	}
+
+	/**
+	 * Find the symmetry that maps a position to its canonical form: of the eight transformed positions the one with the lowest
+	 * player bitboard (compared unsigned), and of those the one with the lowest opponent bitboard. All symmetric positions have
+	 * the same canonical form, transform(player, s) and transform(opponent, s) for the symmetry s returned; a move found in
+	 * the canonical form is mapped back with inverseSquare(). If several symmetries lead to the canonical form, the lowest is returned.
+	 * @param player The pieces of one colour
+	 * @param opponent The pieces of the other colour
+	 * @return The symmetry (0-7)
+	 */
+	public static int canonical(long player, long opponent) {
+		int best = 0;
+		long bestPlayer = player;
+		long bestOpponent = opponent;
+		for(int symmetry = 1; symmetry < SYMMETRIES; symmetry++) {
+			long p = transform(player, symmetry);
+			int compare = Long.compareUnsigned(p, bestPlayer);
+			if(compare > 0) {
+				continue;
+			}
+			long o = transform(opponent, symmetry);
+			if(compare < 0 || Long.compareUnsigned(o, bestOpponent) < 0) {
+				best = symmetry;
+				bestPlayer = p;
+				bestOpponent = o;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Mirror a bitboard horizontally (x becomes 7 - x) by swapping bits, pairs and nibbles within every row
+	 * @param board The bitboard
+	 * @return The mirrored bitboard
+	 */
+	private static long mirrorX(long board) {
+		board = ((board >>> 1) & 0x5555555555555555L) | ((board & 0x5555555555555555L) << 1);
+		board = ((board >>> 2) & 0x3333333333333333L) | ((board & 0x3333333333333333L) << 2);
+		board = ((board >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((board & 0x0f0f0f0f0f0f0f0fL) << 4);
+		return board;
+	}
+
+	/**
+	 * Transpose a bitboard (swap x and y) with three delta swaps
+	 * @param board The bitboard
+	 * @return The transposed bitboard
+	 */
+	private static long transpose(long board) {
+		long t = 0x0f0f0f0f00000000L & (board ^ (board << 28));
+		board ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (board ^ (board << 14));
+		board ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (board ^ (board << 7));
+		board ^= t ^ (t >>> 7);
+		return board;
+	}
+
+}
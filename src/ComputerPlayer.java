@@ -10,54 +10,195 @@ public class ComputerPlayer extends Player implements java.io.Serializable {
 	 */
 	private static final long serialVersionUID = -5317467115053395728L;
 
+	/**
+	 * The search depth used if no engine is specified
+	 */
+	public static final int DEFAULT_DEPTH = 4;
+
+	/**
+	 * The search algorithm used to determine moves
+	 */
+	private SearchEngine engine;
+
+	/**
+	 * The number of threads the engine searches with
+	 */
+	private int threads = 1;
+
+	/**
+	 * The number of empty fields from which on the game is solved exactly by the endgame solver, for players searching with alpha-beta
+	 */
+	public static final int DEFAULT_ENDGAME_EMPTIES = 16;
+
+	/**
+	 * Positions with at most this many empty fields are solved exactly instead of searched by the engine (0 to disable).
+	 * Players with other engines only use the solver if it is switched on, so they keep playing as their engine does.
+	 */
+	private int endgameEmpties;
+
+	/**
+	 * The endgame solver, created on first use
+	 */
+	private transient EndgameSolver solver;
+
+	/**
+	 * Whether this player plays without an opening book
+	 */
+	private boolean bookDisabled;
+
+	/**
+	 * The opening book consulted before searching, the default book unless set otherwise
+	 */
+	private transient OpeningBook book;
+
 	/**
 	 * Constructor for a ComputerPlayer instance, setting the player colour and name
 	 * @param pColour The colour of this player's pieces
 	 */
 	public ComputerPlayer(int pColour) {
+		this(pColour, new AlphaBetaEngine(DEFAULT_DEPTH));
+	}
+	
+	/**
+	 * Constructor for a ComputerPlayer instance using a specific search engine
+	 * @param pColour The colour of this player's pieces
+	 * @param pEngine The search engine to determine moves with
+	 */
+	public ComputerPlayer(int pColour, SearchEngine pEngine) {
 		setColour(pColour);
 		setName("Computer");
+		engine = pEngine;
+		endgameEmpties = pEngine instanceof AlphaBetaEngine ? DEFAULT_ENDGAME_EMPTIES : 0;
 	}
 	
 	/**
-	 * Overrides the makeMove() method of Player
+	 * Overrides the chooseMove() method of Player
 	 */
 	@Override
-	public void makeMove(Grid grid) {
-		// Determine best move
-		int move[] = determineBestMove(grid);
-		
-		//Make move on grid
-		grid.makeMove(move[0], move[1], getColour());
-		
-		// Output move made to the user
-		System.out.println(getName() + " (" + getColourSymbol() + ")" + " plays "+generateHumanCoords(move)+".");
+	public int[] chooseMove(Grid grid) {
+		return determineBestMove(grid);
 	}
 	
 	/**
-	 * Determines the best possible move to make (based on number of pieces flipped)
+	 * Determines the best possible move to make using the search engine of this player
 	 * @param grid The grid to evaluate
 	 * @return The move to make
 	 */
 	public int[] determineBestMove(Grid grid) {
-		// Initialise local variables
-		int move[] = {-1,-1};
-		int maxScore = 0;
 		
-		// Score all moves and keep the best one
-		for(int i = 0; i < grid.getSizeX(); i++) {
-			for(int j = 0; j < grid.getSizeY(); j++) {
-				int score = grid.getMoveScore(i, j, getColour());
-				if(score > maxScore) {
-					move[0] = i;
-					move[1] = j;
-					maxScore = score;
-				}
+		// Play perfectly once the rest of the game can be solved, within half the time limit of the engine
+		long start = System.nanoTime();
+		long timeLimit = getEngine().getTimeLimit();
+		if(EndgameSolver.countEmpties(grid) <= endgameEmpties) {
+			if(solver == null) {
+				int hashMegabytes = getEngine() instanceof AlphaBetaEngine ? ((AlphaBetaEngine) getEngine()).getHashMegabytes() : 0;
+				solver = new EndgameSolver(hashMegabytes > 0 ? hashMegabytes : AlphaBetaEngine.DEFAULT_HASH_MEGABYTES);
+			}
+			// A limit of 0 would let the solver run without one
+			solver.setTimeLimit(timeLimit > 0 ? Math.max(1, timeLimit / 2) : 0);
+			int[] move = solver.findBestMove(grid, getColour());
+			if(!solver.isAborted()) {
+				return move;
+			}
+
+			// The solver ran out of time, so the engine searches in the time left
+			long left = Math.max(1, timeLimit - (System.nanoTime() - start) / 1000000L);
+			getEngine().setTimeLimit(left);
+			try {
+				return getEngine().findBestMove(grid, getColour());
+			} finally {
+				getEngine().setTimeLimit(timeLimit);
 			}
 		}
-		
-		// Return the best move
-		return move;
+
+		// Play known openings from the book without searching
+		OpeningBook openingBook = getOpeningBook();
+		if(openingBook != null) {
+			int[] move = openingBook.findMove(grid, getColour());
+			if(move != null) {
+				return move;
+			}
+		}
+		return getEngine().findBestMove(grid, getColour());
+	}
+	
+	/**
+	 * Get the search engine of this player. Players loaded from saves made before engines existed get the default engine.
+	 * @return The search engine
+	 */
+	public SearchEngine getEngine() {
+		if(engine == null) {
+			engine = new AlphaBetaEngine(DEFAULT_DEPTH);
+		}
+		return engine;
+	}
+
+	/**
+	 * Set the search engine of this player
+	 * @param engine The search engine to set
+	 */
+	public void setEngine(SearchEngine engine) {
+		this.engine = engine;
+		if(threads > 1) {
+			engine.setThreads(threads);
+		}
+	}
+
+	/**
+	 * Get the opening book of this player
+	 * @return The opening book (null if this player plays without one or there is no default book)
+	 */
+	public OpeningBook getOpeningBook() {
+		if(book == null && !bookDisabled) {
+			book = OpeningBook.getDefault();
+		}
+		return book;
+	}
+
+	/**
+	 * @return whether this player plays without an opening book
+	 */
+	public boolean isBookDisabled() {
+		return bookDisabled;
+	}
+
+	/**
+	 * Set the opening book of this player
+	 * @param book The opening book to set (null to play without a book)
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+		bookDisabled = book == null;
+	}
+
+	/**
+	 * @return the number of empty fields from which on the endgame is solved exactly
+	 */
+	public int getEndgameEmpties() {
+		return endgameEmpties;
+	}
+
+	/**
+	 * @param endgameEmpties the number of empty fields from which on the endgame is solved exactly to set (0 to disable)
+	 */
+	public void setEndgameEmpties(int endgameEmpties) {
+		this.endgameEmpties = endgameEmpties;
+	}
+
+	/**
+	 * @return the number of threads the engine searches with
+	 */
+	public int getThreads() {
+		return Math.max(1, threads);
+	}
+
+	/**
+	 * Set the number of threads the engine searches with (more than one selects a parallel search where supported)
+	 * @param threads the number of threads to set
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+		getEngine().setThreads(threads);
 	}
 	
 	/**
@@ -71,10 +212,10 @@ public class ComputerPlayer extends Player implements java.io.Serializable {
 	}
 
 	/**
-	 * Randomly place a piece in the centre 4 fields as part of the setup in traditional Reversi 
+	 * Randomly choose a centre field to place a piece on as part of the setup in traditional Reversi
 	 */
 	@Override
-	public void placeCentrePiece(Grid grid) {
+	public int[] chooseCentrePiece(Grid grid) {
 		boolean valid = false;
 		int min = 3;
 		int max = 4;
@@ -88,11 +229,8 @@ public class ComputerPlayer extends Player implements java.io.Serializable {
 			valid = grid.isEmpty(x, y);
 		}
 		
-		grid.placePiece(x, y, getColour());
-		
 		int[] move = {x,y};
-		
-		System.out.println(getName() + " (" + getColourSymbol() + ")" + " plays "+generateHumanCoords(move)+".");
+		return move;
 	}
 
 }
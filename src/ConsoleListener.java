@@ -0,0 +1,117 @@
+/**
+ * Class representing the console display of a game: prints the board after every move, announces the moves of
+ * computer players and asks the user whether to continue after every round
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class ConsoleListener implements GameListener {
+
+	/**
+	 * Display the board before every centre piece is placed
+	 */
+	@Override
+	public void placementStarted(Game game, Player player) {
+		game.getGrid().display();
+		System.out.println();
+	}
+
+	/**
+	 * Announce centre pieces placed by computer players
+	 */
+	@Override
+	public void piecePlaced(Game game, Player player, int x, int y) {
+		if(player instanceof ComputerPlayer) {
+			System.out.println(player.getName() + " (" + player.getColourSymbol() + ")" + " plays " + Grid.LETTER_REFERENCE[y] + (x + 1) + ".");
+		}
+	}
+
+	/**
+	 * Display the board when the game starts
+	 */
+	@Override
+	public void gameStarted(Game game) {
+		display(game, game.getStartingPlayer() == 1 ? game.getPlayer1() : game.getPlayer2());
+	}
+
+	/**
+	 * Leave a blank line before every move
+	 */
+	@Override
+	public void turnStarted(Game game, Player player) {
+		System.out.println();
+	}
+
+	/**
+	 * Announce moves of computer players and display the board
+	 */
+	@Override
+	public void moveMade(Game game, Player player, int x, int y) {
+		if(player instanceof ComputerPlayer) {
+			System.out.println(player.getName() + " (" + player.getColourSymbol() + ")" + " plays " + Grid.LETTER_REFERENCE[y] + (x + 1) + ".");
+		}
+		display(game, game.getOpponent(player));
+	}
+
+	/**
+	 * Announce the skipped move and display the board
+	 */
+	@Override
+	public void moveSkipped(Game game, Player player) {
+		System.out.println(player.getName() + " skips because there are no valid moves.");
+		display(game, game.getOpponent(player));
+	}
+
+	/**
+	 * Display the score and ask the user whether to continue or exit
+	 */
+	@Override
+	public boolean roundEnded(Game game, int round) {
+		System.out.println();
+		int[] score = game.getGrid().getResults();
+		System.out.println("Round " + round + ": The score is " + score[1] + ":" + score[2] +".");
+
+		// Ask user to continue or exit
+		System.out.println();
+		String[] promptValues = {"","Exit"};
+		String promptReply = InputOutput.getInputFromList("Press Enter to continue | Type Exit to save and exit ", promptValues);
+		return !promptReply.equals("exit");
+	}
+
+	/**
+	 * Display the winner and the final score
+	 */
+	@Override
+	public void gameOver(Game game, Player blocked) {
+		if(blocked != null) {
+			System.out.println("The game is over since " + blocked.getName() + " cannot make a valid move.");
+		}
+		System.out.println();
+		int[] results = game.getGrid().getResults();
+		if(game.getPlayer1().getColour() == results[0]) {
+			System.out.println(game.getPlayer1().getName() + " won the game.");
+		}
+		else if(game.getPlayer2().getColour() == results[0]) {
+			System.out.println(game.getPlayer2().getName() + " won the game.");
+		}
+		else {
+			System.out.println("It's a draw!");
+		}
+		System.out.println("The final score is " + results[1] + ":" + results[2] +".");
+	}
+
+	/**
+	 * Display the board, with hints for the next player if hints are turned on
+	 * @param game The game
+	 * @param next The player to move next
+	 */
+	private void display(Game game, Player next) {
+		if(game.getHints() == 2) {
+			game.getGrid().display(next.getColour());
+		}
+		else {
+			game.getGrid().display();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+// Import Java libraries
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Class representing a command line benchmark of the endgame solver.
+ * <p>
+ * Solves the positions of a test set and checks the results against the stored scores. The default set (endgame.txt)
+ * is loaded from the classpath; each line holds a position (64 fields in row order: X light, O dark, - empty),
+ * the colour to move and the exact final disc difference for that colour with perfect play.
+ * Usage: java EndgameBenchmark [file] [maximum empty fields]
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class EndgameBenchmark {
+
+	/**
+	 * Main method running the benchmark
+	 * @param args An optional test set file (default: endgame.txt on the classpath) and the maximum number of empty fields to solve
+	 * @throws IOException If the test set cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int maxEmpties = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		InputStream input;
+		if(args.length > 0 && !args[0].equals("-")) {
+			input = new FileInputStream(args[0]);
+		}
+		else {
+			input = EndgameBenchmark.class.getResourceAsStream("/endgame.txt");
+			if(input == null) {
+				System.out.println("The test set endgame.txt was not found on the classpath.");
+				return;
+			}
+		}
+
+		EndgameSolver solver = new EndgameSolver(64);
+		int solved = 0;
+		int correct = 0;
+		long totalTime = 0;
+		long totalNodes = 0;
+
+		System.out.printf("%4s %8s %8s %8s %12s %14s%n", "#", "Empties", "Score", "Result", "Time (ms)", "Nodes");
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
+			String line;
+			int number = 0;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				number++;
+
+				// Parse the position
+				String[] parts = line.split("\\s+");
+				long light = 0;
+				long dark = 0;
+				for(int i = 0; i < 64; i++) {
+					if(parts[0].charAt(i) == 'X') {
+						light |= 1L << i;
+					}
+					else if(parts[0].charAt(i) == 'O') {
+						dark |= 1L << i;
+					}
+				}
+				boolean lightToMove = parts[1].equals("X");
+				int expected = Integer.parseInt(parts[2].replace("+", ""));
+				int empties = 64 - Long.bitCount(light | dark);
+				if(empties > maxEmpties) {
+					continue;
+				}
+
+				// Solve it
+				long start = System.nanoTime();
+				int score = lightToMove ? solver.solve(light, dark) : solver.solve(dark, light);
+				long time = System.nanoTime() - start;
+
+				solved++;
+				totalTime += time;
+				totalNodes += solver.getNodes();
+				if(score == expected) {
+					correct++;
+				}
+				System.out.printf("%4d %8d %8d %8s %12.1f %14d%n", number, empties, expected, score == expected ? "ok" : "FAILED " + score, time / 1e6, solver.getNodes());
+			}
+		}
+
+		System.out.println();
+		System.out.printf("Solved %d of %d positions correctly in %.1f ms (%.2f positions/s, %.0f nodes/s)%n",
+				correct, solved, totalTime / 1e6, solved * 1e9 / Math.max(1, totalTime), totalNodes * 1e9 / Math.max(1, totalTime));
+	}
+
+}
@@ -0,0 +1,663 @@
+/**
+ * Class representing an exact endgame solver, which searches every remaining move to the end of the game.
+ * <p>
+ * The solver works on the two bitboards of the position directly. Positions with more empty fields are searched with
+ * principal variation search, trying moves that leave the opponent the fewest replies first (fastest-first).
+ * Near the end, moves into regions (quadrants) with an odd number of empty fields are tried first (parity ordering),
+ * and the last four empty fields are handled by dedicated routines that do not generate move lists at all.
+ * Positions whose stable discs (see Stability) already bound the score below the search window are cut off without a search.
+ * <p>
+ * Scores are final disc differences from the point of view of the colour to move.
+ * With a time limit the search is aborted once the time is up; isAborted() then tells that the result is not exact.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class EndgameSolver implements SearchEngine {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = 2853061962227375504L;
+
+	/**
+	 * Positions with fewer empty fields than this are ordered by parity instead of fastest-first
+	 */
+	private static final int FASTEST_FIRST_EMPTIES = 7;
+
+	/**
+	 * Positions with at least this many empty fields are stored in the transposition table
+	 */
+	private static final int TABLE_EMPTIES = 8;
+
+	/**
+	 * The four quadrants of the board
+	 */
+	private static final long[] QUADRANTS = {0x000000000f0f0f0fL, 0x00000000f0f0f0f0L, 0x0f0f0f0f00000000L, 0xf0f0f0f000000000L};
+
+	/**
+	 * The four corner fields
+	 */
+	private static final long CORNERS = 0x8100000000000081L;
+
+	// Settings
+	private int hashMegabytes;
+	private long timeLimit;
+	private transient TranspositionTable table;
+
+	// Statistics of the last search
+	private long nodes;
+	private long time;
+	private int score;
+	private transient boolean aborted;
+	private transient long deadline;
+
+	// Move lists for each number of empty fields, so the search does not allocate
+	private transient int[][] moveLists;
+	private transient int[][] moveKeys;
+	private transient long[][] moveFlips;
+
+	/**
+	 * Constructor for an EndgameSolver without a transposition table
+	 */
+	public EndgameSolver() {
+		this(0);
+	}
+
+	/**
+	 * Constructor for an EndgameSolver
+	 * @param pHashMegabytes The memory budget of the transposition table in MB (0 for no table)
+	 */
+	public EndgameSolver(int pHashMegabytes) {
+		hashMegabytes = pHashMegabytes;
+	}
+
+	/**
+	 * Solve the position and return the move with the best final result.
+	 * If the time runs out, the best move proven so far is returned ({-1,-1} if there is none) and isAborted() is true.
+	 */
+	@Override
+	public int[] findBestMove(Grid grid, int colour) {
+		long start = System.nanoTime();
+		nodes = 0;
+		int[] move = {-1,-1};
+
+		long player = grid.getPieces(colour);
+		long opponent = grid.getPieces(-colour);
+		int square = solveRoot(player, opponent);
+		if(square >= 0) {
+			move[0] = Bitboard.x(square);
+			move[1] = Bitboard.y(square);
+		}
+
+		time = System.nanoTime() - start;
+		return move;
+	}
+
+	/**
+	 * Determine the exact final disc difference of a position with perfect play from both sides
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	public int solve(long player, long opponent) {
+		long start = System.nanoTime();
+		nodes = 0;
+		prepare();
+		score = search(player, opponent, -64, 64, false);
+		time = System.nanoTime() - start;
+		return score;
+	}
+
+	/**
+	 * Solve the root position and return the best move
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @return The field index of the best move, or -1 if there is no valid move
+	 */
+	private int solveRoot(long player, long opponent) {
+		prepare();
+		long moves = Bitboard.legalMoves(player, opponent);
+		if(moves == 0) {
+			score = search(player, opponent, -64, 64, false);
+			return -1;
+		}
+
+		int empties = 64 - Long.bitCount(player | opponent);
+		int count = orderMoves(player, opponent, moves, empties);
+		int[] list = moveLists[empties];
+		long[] flipList = moveFlips[empties];
+		int alpha = -65;
+		int best = -1;
+
+		for(int i = 0; i < count; i++) {
+			int square = list[i];
+			long flips = flipList[i];
+			long newPlayer = player | flips | (1L << square);
+			long newOpponent = opponent & ~flips;
+
+			// Principal variation search: prove later moves cannot be better with a null window first
+			int value;
+			if(best == -1) {
+				value = -search(newOpponent, newPlayer, -64, 64, false);
+			}
+			else {
+				value = -search(newOpponent, newPlayer, -alpha - 1, -alpha, false);
+				if(value > alpha) {
+					value = -search(newOpponent, newPlayer, -64, -alpha, false);
+				}
+			}
+			if(aborted) {
+				break;
+			}
+			if(value > alpha) {
+				alpha = value;
+				best = square;
+			}
+		}
+
+		score = alpha;
+		return best;
+	}
+
+	/**
+	 * Allocate the move lists and the transposition table if they are not there yet and start the clock
+	 */
+	private void prepare() {
+		aborted = false;
+		deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1000000L : 0;
+		if(moveLists == null) {
+			moveLists = new int[65][32];
+			moveKeys = new int[65][32];
+			moveFlips = new long[65][32];
+		}
+		if(table == null && hashMegabytes > 0) {
+			table = new TranspositionTable(hashMegabytes);
+		}
+		if(table != null) {
+			table.newSearch();
+		}
+	}
+
+	/**
+	 * Alpha-beta search to the end of the game
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @param passed Whether the previous move was a pass
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int search(long player, long opponent, int alpha, int beta, boolean passed) {
+		long empty = ~(player | opponent);
+		int empties = Long.bitCount(empty);
+
+		// The last four empty fields are solved without move lists
+		if(empties <= 4) {
+			return solveSmall(player, opponent, alpha, beta, empty, empties);
+		}
+
+		// Stop once the time is up (the clock is only read every 1024 positions)
+		nodes++;
+		if((nodes & 1023) == 0 && deadline != 0 && System.nanoTime() >= deadline) {
+			aborted = true;
+		}
+		if(aborted) {
+			return 0;
+		}
+
+		// Stability cutoff: the opponent keeps its stable discs, so the score cannot exceed 64 minus twice their number.
+		// They are only counted if the opponent has enough discs for the bound to fail low.
+		if(64 - 2 * Long.bitCount(opponent) <= alpha) {
+			int upper = 64 - 2 * Stability.countStable(opponent, player);
+			if(upper <= alpha) {
+				return upper;
+			}
+		}
+
+		long moves = Bitboard.legalMoves(player, opponent);
+		if(moves == 0) {
+			if(passed) {
+				return finalScore(player, opponent);
+			}
+			return -search(opponent, player, -beta, -alpha, true);
+		}
+
+		// Look up the position
+		long hash = 0;
+		int hashMove = TranspositionTable.NO_MOVE;
+		if(table != null && empties >= TABLE_EMPTIES) {
+			hash = Grid.hash(player, opponent, 1);
+			long entry = table.probe(hash);
+			if(entry != TranspositionTable.MISS) {
+				int stored = TranspositionTable.score(entry);
+				int bound = TranspositionTable.bound(entry);
+				if(bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && stored >= beta)
+						|| (bound == TranspositionTable.UPPER && stored <= alpha)) {
+					return stored;
+				}
+				hashMove = TranspositionTable.move(entry);
+			}
+		}
+
+		int count = orderMoves(player, opponent, moves, empties);
+		int[] list = moveLists[empties];
+		long[] flipList = moveFlips[empties];
+		if(hashMove != TranspositionTable.NO_MOVE) {
+			for(int i = 1; i < count; i++) {
+				if(list[i] == hashMove) {
+					long flips = flipList[i];
+					list[i] = list[0];
+					flipList[i] = flipList[0];
+					list[0] = hashMove;
+					flipList[0] = flips;
+					break;
+				}
+			}
+		}
+
+		int originalAlpha = alpha;
+		int best = -65;
+		int bestMove = TranspositionTable.NO_MOVE;
+
+		for(int i = 0; i < count; i++) {
+			int square = list[i];
+			long flips = flipList[i];
+			long newPlayer = player | flips | (1L << square);
+			long newOpponent = opponent & ~flips;
+
+			// Principal variation search
+			int value;
+			if(i == 0) {
+				value = -search(newOpponent, newPlayer, -beta, -alpha, false);
+			}
+			else {
+				value = -search(newOpponent, newPlayer, -alpha - 1, -alpha, false);
+				if(value > alpha && value < beta) {
+					value = -search(newOpponent, newPlayer, -beta, -value, false);
+				}
+			}
+
+			if(value > best) {
+				best = value;
+				bestMove = square;
+				if(value > alpha) {
+					alpha = value;
+					if(alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+
+		// Results of an aborted search are incomplete and must not be stored
+		if(table != null && empties >= TABLE_EMPTIES && !aborted) {
+			int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+			table.store(hash, empties, bound, best, bestMove);
+		}
+
+		return best;
+	}
+
+	/**
+	 * Fill the move list (and the flips of each move) for the given number of empty fields in the order the moves should be searched
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param moves The valid moves
+	 * @param empties The number of empty fields
+	 * @return The number of moves
+	 */
+	private int orderMoves(long player, long opponent, long moves, int empties) {
+		int[] list = moveLists[empties];
+		int[] keys = moveKeys[empties];
+		long[] flipList = moveFlips[empties];
+		long empty = ~(player | opponent);
+		int count = 0;
+
+		while(moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			long flips = Bitboard.flips(square, player, opponent);
+
+			int key;
+			if(empties >= FASTEST_FIRST_EMPTIES) {
+				// Fastest-first: the fewer replies the opponent has, the earlier the move is searched (corners first)
+				long newPlayer = player | flips | (1L << square);
+				key = Long.bitCount(Bitboard.legalMoves(opponent & ~flips, newPlayer)) * 4;
+				if((CORNERS & (1L << square)) != 0) {
+					key -= 8;
+				}
+			}
+			else {
+				// Parity: moves into quadrants with an odd number of empty fields first
+				key = (Long.bitCount(empty & quadrant(square)) & 1) == 1 ? 0 : 1;
+			}
+
+			// Insertion sort by key (stable, so equal keys keep field order)
+			int i = count++;
+			while(i > 0 && keys[i - 1] > key) {
+				list[i] = list[i - 1];
+				keys[i] = keys[i - 1];
+				flipList[i] = flipList[i - 1];
+				i--;
+			}
+			list[i] = square;
+			keys[i] = key;
+			flipList[i] = flips;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get the quadrant of a field
+	 * @param square The field index
+	 * @return The bitboard of the quadrant
+	 */
+	private static long quadrant(int square) {
+		return QUADRANTS[(Bitboard.y(square) >>> 2) * 2 + (Bitboard.x(square) >>> 2)];
+	}
+
+	/**
+	 * Solve a position with at most four empty fields, trying fields in odd quadrants first
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @param empty The bitboard of the empty fields
+	 * @param empties The number of empty fields
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int solveSmall(long player, long opponent, int alpha, int beta, long empty, int empties) {
+		switch (empties) {
+		case 0:
+			nodes++;
+			return finalScore(player, opponent);
+		case 1:
+			return solve1(player, opponent, Long.numberOfTrailingZeros(empty));
+		case 2: {
+			int first = Long.numberOfTrailingZeros(empty);
+			int second = 63 - Long.numberOfLeadingZeros(empty);
+			return solve2(player, opponent, alpha, beta, first, second, false);
+		}
+		case 3: {
+			int[] order = parityOrder(empty, 3);
+			return solve3(player, opponent, alpha, beta, order[0], order[1], order[2], false);
+		}
+		default: {
+			int[] order = parityOrder(empty, 4);
+			return solve4(player, opponent, alpha, beta, order[0], order[1], order[2], order[3], false);
+		}
+		}
+	}
+
+	/**
+	 * Order the last empty fields so that fields in quadrants with an odd number of empty fields come first
+	 * @param empty The bitboard of the empty fields
+	 * @param empties The number of empty fields
+	 * @return The ordered field indices (the move list for this number of empty fields is reused)
+	 */
+	private int[] parityOrder(long empty, int empties) {
+		int[] order = moveLists[empties];
+		int count = 0;
+		for(long b = empty; b != 0; b &= b - 1) {
+			int square = Long.numberOfTrailingZeros(b);
+			if((Long.bitCount(empty & quadrant(square)) & 1) == 1) {
+				order[count++] = square;
+			}
+		}
+		for(long b = empty; b != 0; b &= b - 1) {
+			int square = Long.numberOfTrailingZeros(b);
+			if((Long.bitCount(empty & quadrant(square)) & 1) == 0) {
+				order[count++] = square;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Solve a position with four empty fields
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @param a The first empty field
+	 * @param b The second empty field
+	 * @param c The third empty field
+	 * @param d The fourth empty field
+	 * @param passed Whether the previous move was a pass
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int solve4(long player, long opponent, int alpha, int beta, int a, int b, int c, int d, boolean passed) {
+		nodes++;
+		int best = -65;
+		long flips;
+
+		if((flips = Bitboard.flips(a, player, opponent)) != 0) {
+			best = -solve3(opponent & ~flips, player | flips | (1L << a), -beta, -alpha, b, c, d, false);
+			if(best >= beta) {
+				return best;
+			}
+		}
+		if((flips = Bitboard.flips(b, player, opponent)) != 0) {
+			int value = -solve3(opponent & ~flips, player | flips | (1L << b), -beta, -Math.max(alpha, best), a, c, d, false);
+			if(value > best) {
+				best = value;
+				if(best >= beta) {
+					return best;
+				}
+			}
+		}
+		if((flips = Bitboard.flips(c, player, opponent)) != 0) {
+			int value = -solve3(opponent & ~flips, player | flips | (1L << c), -beta, -Math.max(alpha, best), a, b, d, false);
+			if(value > best) {
+				best = value;
+				if(best >= beta) {
+					return best;
+				}
+			}
+		}
+		if((flips = Bitboard.flips(d, player, opponent)) != 0) {
+			int value = -solve3(opponent & ~flips, player | flips | (1L << d), -beta, -Math.max(alpha, best), a, b, c, false);
+			if(value > best) {
+				best = value;
+			}
+		}
+
+		// No move: pass, or the game is over
+		if(best == -65) {
+			if(passed) {
+				return finalScore(player, opponent);
+			}
+			return -solve4(opponent, player, -beta, -alpha, a, b, c, d, true);
+		}
+		return best;
+	}
+
+	/**
+	 * Solve a position with three empty fields
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @param a The first empty field
+	 * @param b The second empty field
+	 * @param c The third empty field
+	 * @param passed Whether the previous move was a pass
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int solve3(long player, long opponent, int alpha, int beta, int a, int b, int c, boolean passed) {
+		nodes++;
+		int best = -65;
+		long flips;
+
+		if((flips = Bitboard.flips(a, player, opponent)) != 0) {
+			best = -solve2(opponent & ~flips, player | flips | (1L << a), -beta, -alpha, b, c, false);
+			if(best >= beta) {
+				return best;
+			}
+		}
+		if((flips = Bitboard.flips(b, player, opponent)) != 0) {
+			int value = -solve2(opponent & ~flips, player | flips | (1L << b), -beta, -Math.max(alpha, best), a, c, false);
+			if(value > best) {
+				best = value;
+				if(best >= beta) {
+					return best;
+				}
+			}
+		}
+		if((flips = Bitboard.flips(c, player, opponent)) != 0) {
+			int value = -solve2(opponent & ~flips, player | flips | (1L << c), -beta, -Math.max(alpha, best), a, b, false);
+			if(value > best) {
+				best = value;
+			}
+		}
+
+		// No move: pass, or the game is over
+		if(best == -65) {
+			if(passed) {
+				return finalScore(player, opponent);
+			}
+			return -solve3(opponent, player, -beta, -alpha, a, b, c, true);
+		}
+		return best;
+	}
+
+	/**
+	 * Solve a position with two empty fields
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param alpha The lower bound of the search window
+	 * @param beta The upper bound of the search window
+	 * @param a The first empty field
+	 * @param b The second empty field
+	 * @param passed Whether the previous move was a pass
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int solve2(long player, long opponent, int alpha, int beta, int a, int b, boolean passed) {
+		nodes++;
+		int best = -65;
+		long flips;
+
+		if((flips = Bitboard.flips(a, player, opponent)) != 0) {
+			best = -solve1(opponent & ~flips, player | flips | (1L << a), b);
+			if(best >= beta) {
+				return best;
+			}
+		}
+		if((flips = Bitboard.flips(b, player, opponent)) != 0) {
+			int value = -solve1(opponent & ~flips, player | flips | (1L << b), a);
+			if(value > best) {
+				best = value;
+			}
+		}
+
+		// No move: pass, or the game is over
+		if(best == -65) {
+			if(passed) {
+				return finalScore(player, opponent);
+			}
+			return -solve2(opponent, player, -beta, -alpha, a, b, true);
+		}
+		return best;
+	}
+
+	/**
+	 * Solve a position with one empty field
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @param square The empty field
+	 * @return The final disc difference from the point of view of the colour to move
+	 */
+	private int solve1(long player, long opponent, int square) {
+		nodes++;
+		int discs = Long.bitCount(player) - Long.bitCount(opponent);
+
+		// The colour to move fills the field
+		long flips = Bitboard.flips(square, player, opponent);
+		if(flips != 0) {
+			return discs + 2 * Long.bitCount(flips) + 1;
+		}
+
+		// Otherwise the opponent fills it, or it stays empty
+		flips = Bitboard.flips(square, opponent, player);
+		if(flips != 0) {
+			return discs - 2 * Long.bitCount(flips) - 1;
+		}
+		return discs;
+	}
+
+	/**
+	 * Score a finished game
+	 * @param player The bitboard of the colour to move
+	 * @param opponent The bitboard of the opponent
+	 * @return The disc difference from the point of view of the colour to move
+	 */
+	private static int finalScore(long player, long opponent) {
+		return Long.bitCount(player) - Long.bitCount(opponent);
+	}
+
+	/**
+	 * Count the empty fields of a grid
+	 * @param grid The grid
+	 * @return The number of empty fields
+	 */
+	public static int countEmpties(Grid grid) {
+		return 64 - Long.bitCount(grid.getPieces(1) | grid.getPieces(-1));
+	}
+
+	/**
+	 * The solver searches sequentially, so the number of threads is ignored
+	 */
+	@Override
+	public void setThreads(int threads) {
+	}
+
+	/**
+	 * @return the timeLimit in milliseconds (0 for no limit)
+	 */
+	@Override
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * @param timeLimit the time limit per search in milliseconds to set (0 for no limit)
+	 */
+	@Override
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return whether the last search was aborted because the time was up (its move and score are then not exact)
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * @return The final disc difference of the last solved position, from the point of view of the colour to move
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the nodes
+	 */
+	@Override
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes per second
+	 */
+	@Override
+	public double getNodesPerSecond() {
+		return time > 0 ? nodes * 1e9 / time : 0;
+	}
+
+}
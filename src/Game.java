@@ -1,3 +1,7 @@
+// Import Java libraries
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Class representing a game of Reversi
  * 
@@ -24,6 +28,8 @@ public class Game implements java.io.Serializable {
 	private boolean gameOver;
 	private int players;
 	
+	private transient List<GameListener> listeners;
+	
 	/**
 	 * Constructor for building a new game
 	 * @param pPlayers The number of players
@@ -74,13 +80,34 @@ public class Game implements java.io.Serializable {
 			player2 = new ComputerPlayer(colour2);
 		}
 		
-		// Initialise board according to gamemode
+		// Initialise board according to gamemode; in Traditional mode the players place the centre pieces when the game is run
 		if(gamemode == 1) {
 			initialiseOthello();
 		}
-		else if(gamemode == 2) {
-			initialiseTraditional();
-		}
+	}
+	
+	/**
+	 * Constructor for restoring a game in progress, e.g. from a save file
+	 * @param pPlayers The number of players
+	 * @param pGamemode The gamemode to be played
+	 * @param pPlayer1 The first player
+	 * @param pPlayer2 The second player
+	 * @param pStartingPlayer The player to make the first move
+	 * @param pHints The hints option
+	 * @param pGrid The grid with the current position
+	 * @param pRounds The number of rounds played
+	 * @param pGameOver Whether the game has concluded
+	 */
+	public Game(int pPlayers, int pGamemode, Player pPlayer1, Player pPlayer2, int pStartingPlayer, int pHints, Grid pGrid, int pRounds, boolean pGameOver) {
+		players = pPlayers;
+		gamemode = pGamemode;
+		player1 = pPlayer1;
+		player2 = pPlayer2;
+		startingPlayer = pStartingPlayer;
+		hints = pHints;
+		grid = pGrid;
+		rounds = pRounds;
+		gameOver = pGameOver;
 	}
 	
 	/**
@@ -91,484 +118,143 @@ public class Game implements java.io.Serializable {
 	}
 	
 	/**
-	 * Initialise the game for Traditional mode
+	 * Initialise the game for Traditional mode: the players place the four centre pieces in turns, starting with the starting player
 	 */
 	public void initialiseTraditional() {
-		if(startingPlayer == 1) {
-			for(int i = 0; i < 2; i++) {
-				grid.display();
-				System.out.println();
-				player1.placeCentrePiece(grid);
-				
-				grid.display();
-				System.out.println();
-				player2.placeCentrePiece(grid);
-				
+		Player player = startingPlayer == 1 ? player1 : player2;
+		for(int i = 0; i < 4; i++) {
+			for(GameListener listener : getListeners()) {
+				listener.placementStarted(this, player);
 			}
-		}
-		else {
-			for(int i = 0; i < 2; i++) {
-				grid.display();
-				System.out.println();
-				player2.placeCentrePiece(grid);
-				
-				grid.display();
-				System.out.println();
-				player1.placeCentrePiece(grid);
-				
+			int[] field = player.chooseCentrePiece(grid);
+			grid.placePiece(field[0], field[1], player.getColour());
+			for(GameListener listener : getListeners()) {
+				listener.piecePlaced(this, player, field[0], field[1]);
 			}
+			player = getOpponent(player);
 		}
 	}
 	
 	/**
-	 * Runs the game
+	 * Runs the game until it is over or a listener stops it at the end of a round.
+	 * A new Traditional game starts with the players placing the centre pieces.
+	 * In the Othello ruleset a player without a valid move skips and the game ends once neither player can move;
+	 * in the Traditional ruleset the game ends as soon as the player to move cannot make a valid move.
 	 * @return Whether the game has concluded (Game Over)
 	 */
 	public boolean run() {
 		
-		// Decides which ruleset to run the game with
-		switch (gamemode) {
-		case 1: {
-			// Check whether game has to be run with hints
-			if(hints == 1) {
-				runOthello();
-			}
-			else {
-				runOthelloHints();
-			}
-			break;
-		}
-		case 2: {
-			// Check whether game has to be run with hints
-			if(hints == 1) {
-				runTraditional();
-			}
-			else {
-				runTraditionalHints();
-			}
-			break;
+		if(gamemode == 2 && rounds == 0 && (grid.getPieces(1) | grid.getPieces(-1)) == 0) {
+			initialiseTraditional();
 		}
+		
+		for(GameListener listener : getListeners()) {
+			listener.gameStarted(this);
 		}
-		return gameOver;
 		
-	}
-	
-	/**
-	 * Runs the game with the Othello ruleset
-	 */
-	public void runOthello() {
-
-		grid.display();
 		while(!gameOver) {
 			
 			// Increment rounds counter
 			rounds++;
 			
-			// Player order if player1 starts
-			if(startingPlayer == 1) {
-				
-				// Player 1 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					player1.skipMove();
-				}
-				grid.display();
-				System.out.println();
-				
-				// Player 2 makes move
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					player2.skipMove();
-				}
-				grid.display();
-				
-				// End game if neither player can make a move
-				if(!grid.checkValidMoves()) {
-					gameOver = true;
-				}
-				
-			}
-			// Player order if player2 starts
-			else {
-				
-				// Player 2 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					player2.skipMove();
-				}
-				grid.display();
-				System.out.println();
-				
-				// Player 1 makes move
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					player1.skipMove();
-				}
-				grid.display();
-				
-				// End game if neither player can make a move
-				if(!grid.checkValidMoves()) {
-					gameOver = true;
-				}
-				
+			// Both players move in turn, starting with the starting player
+			Player first = startingPlayer == 1 ? player1 : player2;
+			if(playTurn(first)) {
+				playTurn(getOpponent(first));
 			}
 			
 			if(gameOver) {
-				System.out.println();
-				int[] results = grid.getResults();
-				if(player1.getColour() == results[0]) {
-					System.out.println(player1.getName() + " won the game.");
-				}
-				else if(player2.getColour() == results[0]) {
-					System.out.println(player2.getName() + " won the game.");
-				}
-				else {
-					System.out.println("It's a draw!");
-				}
-				System.out.println("The final score is " + results[1] + ":" + results[2] +".");
 				break;
 			}
 			
-			// Display end of round text
-			System.out.println();
-			int[] score = grid.getResults();
-			System.out.println("Round " + rounds + ": The score is " + score[1] + ":" + score[2] +".");
-			
-			// Ask user to continue or exit
-			System.out.println();
-			String[] promptValues = {"","Exit"};
-			String promptReply = InputOutput.getInputFromList("Press Enter to continue | Type Exit to save and exit ", promptValues);;
-			
-			if(promptReply.equals("exit")) {
+			// Stop if any listener asks to (e.g. the user wants to save and exit)
+			boolean resume = true;
+			for(GameListener listener : getListeners()) {
+				resume &= listener.roundEnded(this, rounds);
+			}
+			if(!resume) {
 				break;
 			}
 			
 		}
+		return gameOver;
 		
 	}
 	
 	/**
-	 * Run the game with hints and the Othello ruleset
+	 * Let a player make a move, or skip if there is no valid move, and check whether the game is over
+	 * @param player The player to move
+	 * @return Whether the game continues
 	 */
-	public void runOthelloHints() {
-
-		if(startingPlayer == 1) {
-			grid.display(player1.getColour());
-		}
-		else {
-			grid.display(player2.getColour());
+	private boolean playTurn(Player player) {
+		
+		for(GameListener listener : getListeners()) {
+			listener.turnStarted(this, player);
 		}
-		while(!gameOver) {
-			
-			// Increment rounds counter
-			rounds++;
-			
-			// Player order if player1 starts
-			if(startingPlayer == 1) {
-				
-				// Player 1 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					player1.skipMove();
-				}
-				grid.display(player2.getColour());
-				System.out.println();
-				
-				// Player 2 makes move
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					player2.skipMove();
-				}
-				grid.display(player1.getColour());
-				
-				// End game if neither player can make a move
-				if(!grid.checkValidMoves()) {
-					gameOver = true;
-				}
-				
-			}
-			// Player order if player2 starts
-			else {
-				
-				// Player 2 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					player2.skipMove();
-				}
-				grid.display(player1.getColour());
-				System.out.println();
-				
-				// Player 1 makes move
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					player1.skipMove();
-				}
-				grid.display(player2.getColour());
-				
-				// End game if neither player can make a move
-				if(!grid.checkValidMoves()) {
-					gameOver = true;
-				}
-				
-			}
-			
-			if(gameOver) {
-				System.out.println();
-				int[] results = grid.getResults();
-				if(player1.getColour() == results[0]) {
-					System.out.println(player1.getName() + " won the game.");
-				}
-				else if(player2.getColour() == results[0]) {
-					System.out.println(player2.getName() + " won the game.");
-				}
-				else {
-					System.out.println("It's a draw!");
-				}
-				System.out.println("The final score is " + results[1] + ":" + results[2] +".");
-				break;
+		
+		if(grid.checkValidMoves(player.getColour())) {
+			int[] move = player.chooseMove(grid);
+			grid.makeMove(move[0], move[1], player.getColour());
+			for(GameListener listener : getListeners()) {
+				listener.moveMade(this, player, move[0], move[1]);
 			}
-			
-			// Display end of round text
-			System.out.println();
-			int[] score = grid.getResults();
-			System.out.println("Round " + rounds + ": The score is " + score[1] + ":" + score[2] +".");
-			
-			// Ask user to continue or exit
-			System.out.println();
-			String[] promptValues = {"","Exit"};
-			String promptReply = InputOutput.getInputFromList("Press Enter to continue | Type Exit to save and exit ", promptValues);;
-			
-			if(promptReply.equals("exit")) {
-				break;
+		}
+		else if(gamemode == 2) {
+			// In Traditional mode a player who cannot move ends the game
+			endGame(player);
+			return false;
+		}
+		else {
+			grid.pass();
+			for(GameListener listener : getListeners()) {
+				listener.moveSkipped(this, player);
 			}
-			
 		}
 		
+		// End the Othello game if neither player can make a move
+		if(gamemode == 1 && !grid.checkValidMoves()) {
+			endGame(null);
+			return false;
+		}
+		return true;
 	}
 	
 	/**
-	 * Runs the game with the Traditional ruleset
+	 * Mark the game as over and notify the listeners
+	 * @param blocked The player whose lack of a valid move ended the game, or null
 	 */
-	public void runTraditional() {
-		
-		if(startingPlayer == 1) {
-			grid.display(player1.getColour());
-		}
-		else {
-			grid.display(player2.getColour());
-		}
-		while(!gameOver) {
-			
-			// Increment rounds counter
-			rounds++;
-			
-			// Player order if player1 starts
-			if(startingPlayer == 1) {
-				
-				// Player 1 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player1.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display(player2.getColour());
-				System.out.println();
-				
-				// Player 2 makes move
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player2.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display(player1.getColour());
-				
-			}
-			// Player order if player2 starts
-			else {
-				
-				// Player 2 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player2.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display(player1.getColour());
-				System.out.println();
-				
-				// Player 1 makes move
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player1.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display(player2.getColour());
-				
-			}
-			
-			if(gameOver) {
-				System.out.println();
-				int[] results = grid.getResults();
-				if(player1.getColour() == results[0]) {
-					System.out.println(player1.getName() + " won the game.");
-				}
-				else if(player2.getColour() == results[0]) {
-					System.out.println(player2.getName() + " won the game.");
-				}
-				else {
-					System.out.println("It's a draw!");
-				}
-				System.out.println("The final score is " + results[1] + ":" + results[2] +".");
-				break;
-			}
-			
-			// Display end of round text
-			System.out.println();
-			int[] score = grid.getResults();
-			System.out.println("Round " + rounds + ": The score is " + score[1] + ":" + score[2] +".");
-			
-			// Ask user to continue or exit
-			System.out.println();
-			String[] promptValues = {"","Exit"};
-			String promptReply = InputOutput.getInputFromList("Press Enter to continue | Type Exit to save and exit ", promptValues);;
-			
-			if(promptReply.equals("exit")) {
-				break;
-			}
+	private void endGame(Player blocked) {
+		gameOver = true;
+		for(GameListener listener : getListeners()) {
+			listener.gameOver(this, blocked);
 		}
 	}
 	
 	/**
-	 * Run the game with hints and the Traditional ruleset
+	 * Add a listener to be notified of the events of this game
+	 * @param listener The listener to add
 	 */
-	public void runTraditionalHints() {
-		
-		grid.display();
-		while(!gameOver) {
-			
-			// Increment rounds counter
-			rounds++;
-			
-			// Player order if player1 starts
-			if(startingPlayer == 1) {
-				
-				// Player 1 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player1.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display();
-				System.out.println();
-				
-				// Player 2 makes move
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player2.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display();
-				
-			}
-			// Player order if player2 starts
-			else {
-				
-				// Player 2 makes move
-				System.out.println();
-				if(grid.checkValidMoves(player2.getColour())) {
-					player2.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player2.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display();
-				System.out.println();
-				
-				// Player 1 makes move
-				if(grid.checkValidMoves(player1.getColour())) {
-					player1.makeMove(grid);
-				}
-				else {
-					System.out.println("The game is over since " + player1.getName() + " cannot make a valid move.");
-					gameOver = true;
-					break;
-				}
-				grid.display();
-				
-			}
-			
-			if(gameOver) {
-				System.out.println();
-				int[] results = grid.getResults();
-				if(player1.getColour() == results[0]) {
-					System.out.println(player1.getName() + " won the game.");
-				}
-				else if(player2.getColour() == results[0]) {
-					System.out.println(player2.getName() + " won the game.");
-				}
-				else {
-					System.out.println("It's a draw!");
-				}
-				System.out.println("The final score is " + results[1] + ":" + results[2] +".");
-				break;
-			}
-			
-			// Display end of round text
-			System.out.println();
-			int[] score = grid.getResults();
-			System.out.println("Round " + rounds + ": The score is " + score[1] + ":" + score[2] +".");
-			
-			// Ask user to continue or exit
-			System.out.println();
-			String[] promptValues = {"","Exit"};
-			String promptReply = InputOutput.getInputFromList("Press Enter to continue | Type Exit to save and exit ", promptValues);;
-			
-			if(promptReply.equals("exit")) {
-				break;
-			}
+	public void addListener(GameListener listener) {
+		getListeners().add(listener);
+	}
+	
+	/**
+	 * Remove a listener
+	 * @param listener The listener to remove
+	 */
+	public void removeListener(GameListener listener) {
+		getListeners().remove(listener);
+	}
+	
+	/**
+	 * Get the listeners of this game. Listeners are not saved with the game.
+	 * @return The listeners
+	 */
+	private List<GameListener> getListeners() {
+		if(listeners == null) {
+			listeners = new ArrayList<GameListener>();
 		}
+		return listeners;
 	}
 	
 	// Useful getter methods
@@ -590,6 +276,43 @@ public class Game implements java.io.Serializable {
 		}
 	}
 	
+	/**
+	 * Get the other player of this game
+	 * @param player One of the players
+	 * @return The other player
+	 */
+	public Player getOpponent(Player player) {
+		return player == player1 ? player2 : player1;
+	}
+	
+	/**
+	 * @return grid
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+	
+	/**
+	 * @return player1
+	 */
+	public Player getPlayer1() {
+		return player1;
+	}
+	
+	/**
+	 * @return player2
+	 */
+	public Player getPlayer2() {
+		return player2;
+	}
+	
+	/**
+	 * @return hints (1 no hints, 2 hints)
+	 */
+	public int getHints() {
+		return hints;
+	}
+	
 	/**
 	 * @return players
 	 */
@@ -0,0 +1,418 @@
+// Import Java libraries
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class representing an append-only archive of finished games, e.g. as training data.
+ * <p>
+ * The archive is two files in one directory: games.dat holds the games as length-prefixed records and games.idx holds the
+ * offset of every record as a long, so game n is found at index position 8n. Games are only ever appended.
+ * Reading goes through memory mapped views of both files and the getters read straight from them, so scanning the
+ * archive creates no objects per game. The files are mapped in segments of 1 GB, so the archive is not limited by the size
+ * of a single view; the views of the data file overlap by the size of the largest record, so no record is split between two views.
+ * A game record (big-endian) is:
+ * <pre>
+ * short    length of the rest of the record
+ * long     time the game was archived (milliseconds since 1970)
+ * byte     gamemode, players
+ * long     light pieces, dark pieces of the start position
+ * byte     colour to move in the start position
+ * byte     final number of light pieces, dark pieces
+ * byte     number of moves, followed by one byte per move as in SaveFormat
+ * </pre>
+ * The archive can be added to a game as a listener, which archives the game once it is over.
+ * Usage: java GameArchive [directory] prints a summary of an archive (default ./archive).
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class GameArchive implements GameListener, AutoCloseable {
+
+	/**
+	 * The directory of the archive used if none is specified
+	 */
+	public static final String DEFAULT_DIRECTORY = "./archive";
+
+	/**
+	 * The first bytes of the data file ("RVSA" and the format version)
+	 */
+	private static final long HEADER = 0x5256534100000001L;
+
+	// Offsets of the fields within a record
+	private static final int TIMESTAMP = 2;
+	private static final int GAMEMODE = 10;
+	private static final int PLAYERS = 11;
+	private static final int START_LIGHT = 12;
+	private static final int START_DARK = 20;
+	private static final int START_SIDE = 28;
+	private static final int LIGHT_RESULT = 29;
+	private static final int DARK_RESULT = 30;
+	private static final int MOVE_COUNT = 31;
+	private static final int MOVES = 32;
+
+	/**
+	 * The size of the segments the files are mapped in, as a power of two
+	 */
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	/**
+	 * The size of the largest record
+	 */
+	private static final int MAX_RECORD = MOVES + Grid.HISTORY_SIZE;
+
+	// Files of the archive
+	private final FileChannel data;
+	private final FileChannel index;
+
+	// Buffer reused for every record appended
+	private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD);
+	private final ByteBuffer offset = ByteBuffer.allocate(8);
+
+	// Read-only views of the segments of both files, extended when games have been appended since
+	private volatile MappedByteBuffer[] dataViews = new MappedByteBuffer[0];
+	private volatile MappedByteBuffer[] indexViews = new MappedByteBuffer[0];
+	private volatile int mappedGames;
+	private volatile int games;
+
+	/**
+	 * Constructor opening an archive, creating it if it does not exist.
+	 * A record left incomplete by a crash while appending is removed.
+	 * @param directory The directory of the archive
+	 * @throws IOException If the files cannot be opened or are not an archive
+	 */
+	public GameArchive(File directory) throws IOException {
+		directory.mkdirs();
+		data = FileChannel.open(new File(directory, "games.dat").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		index = FileChannel.open(new File(directory, "games.idx").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		// Write the header of a new archive, or check the header of an existing one
+		ByteBuffer header = ByteBuffer.allocate(8);
+		if(data.size() == 0) {
+			header.putLong(HEADER).flip();
+			data.write(header, 0);
+		}
+		else {
+			data.read(header, 0);
+			if(data.size() < 8 || header.getLong(0) != HEADER) {
+				close();
+				throw new IOException("This is not a game archive");
+			}
+		}
+
+		// Only keep the games that are completely written to both files
+		long entries = index.size() / 8;
+		long end = 8;
+		while(entries > 0) {
+			ByteBuffer last = ByteBuffer.allocate(8);
+			index.read(last, (entries - 1) * 8);
+			long start = last.getLong(0);
+			ByteBuffer length = ByteBuffer.allocate(2);
+			if(start >= 8 && start + 2 <= data.size()) {
+				data.read(length, start);
+				end = start + 2 + (length.getShort(0) & 0xffff);
+				if(end <= data.size()) {
+					break;
+				}
+			}
+			entries--;
+			end = 8;
+		}
+		if(entries > Integer.MAX_VALUE) {
+			close();
+			throw new IOException("The archive has too many games");
+		}
+		index.truncate(entries * 8);
+		data.truncate(end);
+		games = (int) entries;
+	}
+
+	/**
+	 * Open the archive in the default directory
+	 * @return The archive
+	 * @throws IOException If the archive cannot be opened
+	 */
+	public static GameArchive open() throws IOException {
+		return new GameArchive(new File(DEFAULT_DIRECTORY));
+	}
+
+	/**
+	 * Archive a game once it is over
+	 */
+	@Override
+	public void gameOver(Game game, Player blocked) {
+		try {
+			append(game.getGrid(), game.getGamemode(), game.getPlayers());
+		} catch (IOException e) {
+			// A game that cannot be archived is simply missing from the archive; the game itself is unaffected
+		}
+	}
+
+	/**
+	 * Append a finished game. Its moves are read from the history of the grid.
+	 * @param grid The grid of the finished game
+	 * @param gamemode The gamemode (1 Othello, 2 Traditional)
+	 * @param players The players setting of the game (3 for computer vs computer)
+	 * @return The number of the archived game
+	 * @throws IOException If the game cannot be written
+	 */
+	public synchronized int append(Grid grid, int gamemode, int players) throws IOException {
+		int length = grid.getHistoryLength();
+		if(length > Grid.HISTORY_SIZE) {
+			throw new IOException("The game has too many moves to be archived");
+		}
+		record.clear();
+		record.putShort((short) (MOVES - 2 + length));
+		record.putLong(System.currentTimeMillis());
+		record.put((byte) gamemode);
+		record.put((byte) players);
+		record.putLong(grid.getStartPieces(1));
+		record.putLong(grid.getStartPieces(-1));
+		record.put((byte) grid.getStartSideToMove());
+		record.put((byte) Long.bitCount(grid.getPieces(1)));
+		record.put((byte) Long.bitCount(grid.getPieces(-1)));
+		record.put((byte) length);
+		for(int i = 0; i < length; i++) {
+			record.put((byte) SaveFormat.encodeMove(grid.getHistoryMove(i), grid.getHistoryColour(i)));
+		}
+		record.flip();
+
+		// Write the record first, so the index never points at a record that is not completely written
+		long position = data.size();
+		while(record.hasRemaining()) {
+			data.write(record, position + record.position());
+		}
+		offset.clear();
+		offset.putLong(position).flip();
+		while(offset.hasRemaining()) {
+			index.write(offset, (long) games * 8 + offset.position());
+		}
+		return games++;
+	}
+
+	/**
+	 * @return The number of games in the archive
+	 */
+	public int size() {
+		return games;
+	}
+
+	/**
+	 * Make sure the views of the files include every game appended so far
+	 * @throws IOException If the files cannot be mapped
+	 */
+	private synchronized void map() throws IOException {
+		int count = games;
+		if(mappedGames < count) {
+			// The records of the games counted are completely written, as they are written before their offsets
+			dataViews = map(data, dataViews, data.size(), MAX_RECORD);
+			indexViews = map(index, indexViews, (long) count * 8, 0);
+			mappedGames = count;
+		}
+	}
+
+	/**
+	 * Map the segments of a file up to a size, keeping the views of segments that were already mapped completely
+	 * @param channel The file
+	 * @param views The views mapped so far
+	 * @param size The size of the file to map
+	 * @param overlap The number of bytes each view extends into the next segment
+	 * @return The views of all segments
+	 * @throws IOException If the file cannot be mapped
+	 */
+	private static MappedByteBuffer[] map(FileChannel channel, MappedByteBuffer[] views, long size, int overlap) throws IOException {
+		int segments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+		MappedByteBuffer[] mapped = Arrays.copyOf(views, Math.max(segments, views.length));
+		for(int i = Math.max(0, views.length - 1); i < segments; i++) {
+			long start = (long) i << SEGMENT_BITS;
+			long length = Math.min(size - start, SEGMENT_MASK + 1 + overlap);
+			if(mapped[i] == null || mapped[i].capacity() < length) {
+				mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+		}
+		return mapped;
+	}
+
+	/**
+	 * Get the position of a game in the data file
+	 * @param game The number of the game
+	 * @return The offset of its record
+	 */
+	private long record(int game) {
+		if(game < 0 || game >= games) {
+			throw new IndexOutOfBoundsException("Game " + game + " of " + games);
+		}
+		if(game >= mappedGames) {
+			try {
+				map();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		long position = (long) game * 8;
+		return indexViews[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+	}
+
+	/**
+	 * Get the view of the data file containing a record
+	 * @param record The offset of the record
+	 * @return The view, in which the record starts at offset(record)
+	 */
+	private MappedByteBuffer view(long record) {
+		return dataViews[(int) (record >>> SEGMENT_BITS)];
+	}
+
+	/**
+	 * @param record The offset of a record in the data file
+	 * @return The offset of the record in its view
+	 */
+	private static int offset(long record) {
+		return (int) (record & SEGMENT_MASK);
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @return The time the game was archived in milliseconds since 1970
+	 */
+	public long getTimestamp(int game) {
+		long record = record(game);
+		return view(record).getLong(offset(record) + TIMESTAMP);
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @return The gamemode (1 Othello, 2 Traditional)
+	 */
+	public int getGamemode(int game) {
+		long record = record(game);
+		return view(record).get(offset(record) + GAMEMODE);
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @return The players setting of the game (3 for computer vs computer)
+	 */
+	public int getPlayers(int game) {
+		long record = record(game);
+		return view(record).get(offset(record) + PLAYERS);
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @param colour The colour (1 for light, -1 for dark)
+	 * @return The bitboard of the pieces of the colour in the start position
+	 */
+	public long getStartPieces(int game, int colour) {
+		long record = record(game);
+		return view(record).getLong(offset(record) + (colour == 1 ? START_LIGHT : START_DARK));
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @return The colour to move in the start position (0 if not known)
+	 */
+	public int getStartSideToMove(int game) {
+		long record = record(game);
+		return view(record).get(offset(record) + START_SIDE);
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @param colour The colour (1 for light, -1 for dark)
+	 * @return The number of pieces of the colour at the end of the game
+	 */
+	public int getResult(int game, int colour) {
+		long record = record(game);
+		return view(record).get(offset(record) + (colour == 1 ? LIGHT_RESULT : DARK_RESULT));
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @return The number of moves, including passes
+	 */
+	public int getMoveCount(int game) {
+		long record = record(game);
+		return view(record).get(offset(record) + MOVE_COUNT) & 0xff;
+	}
+
+	/**
+	 * @param game The number of the game
+	 * @param move The number of the move
+	 * @return The move encoded as one byte (see SaveFormat.decodeSquare() and SaveFormat.decodeColour())
+	 */
+	public int getMove(int game, int move) {
+		long record = record(game);
+		int count = view(record).get(offset(record) + MOVE_COUNT) & 0xff;
+		if(move < 0 || move >= count) {
+			throw new IndexOutOfBoundsException("Move " + move + " of " + count);
+		}
+		return view(record).get(offset(record) + MOVES + move) & 0xff;
+	}
+
+	/**
+	 * Restore the final position of a game by replaying its moves
+	 * @param game The number of the game
+	 * @return The grid, with the moves in its history
+	 */
+	public Grid replay(int game) {
+		Grid grid = new Grid();
+		grid.setPieces(getStartPieces(game, 1), getStartPieces(game, -1));
+		grid.setSideToMove(getStartSideToMove(game));
+		for(int i = 0; i < getMoveCount(game); i++) {
+			int move = getMove(game, i);
+			int square = SaveFormat.decodeSquare(move);
+			if(square == Grid.PASS) {
+				grid.setSideToMove(SaveFormat.decodeColour(move));
+				grid.pass();
+			}
+			else {
+				grid.makeMove(Bitboard.x(square), Bitboard.y(square), SaveFormat.decodeColour(move));
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Write the appended games to the disk and close the files of the archive
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			data.force(true);
+			index.force(true);
+		} finally {
+			data.close();
+			index.close();
+		}
+	}
+
+	/**
+	 * Main method printing a summary of an archive
+	 * @param args The directory of the archive (default ./archive)
+	 * @throws IOException If the archive cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		try (GameArchive archive = new GameArchive(new File(args.length > 0 ? args[0] : DEFAULT_DIRECTORY))) {
+			long start = System.nanoTime();
+			int size = archive.size();
+			int[] wins = new int[3];
+			long moves = 0;
+			for(int game = 0; game < size; game++) {
+				int difference = archive.getResult(game, 1) - archive.getResult(game, -1);
+				wins[difference > 0 ? 0 : difference < 0 ? 1 : 2]++;
+				moves += archive.getMoveCount(game);
+			}
+			long time = System.nanoTime() - start;
+			System.out.printf("%d games: %d light wins, %d dark wins, %d draws, %.1f moves per game%n",
+					size, wins[0], wins[1], wins[2], size > 0 ? (double) moves / size : 0);
+			System.out.printf("Scanned in %.1f ms (%.0f games/s)%n", time / 1e6, size * 1e9 / Math.max(1, time));
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Interface for objects notified of the events of a running game, e.g. to display it or to record it.
+ * All methods do nothing by default, so a game without listeners runs without any output.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public interface GameListener {
+
+	/**
+	 * The game is started or resumed
+	 * @param game The game
+	 */
+	public default void gameStarted(Game game) {
+	}
+
+	/**
+	 * A player is about to place one of the centre pieces in the setup of a Traditional game
+	 * @param game The game
+	 * @param player The player to place a piece
+	 */
+	public default void placementStarted(Game game, Player player) {
+	}
+
+	/**
+	 * A player placed one of the centre pieces in the setup of a Traditional game
+	 * @param game The game
+	 * @param player The player who placed the piece
+	 * @param x The x coordinate of the piece
+	 * @param y The y coordinate of the piece
+	 */
+	public default void piecePlaced(Game game, Player player, int x, int y) {
+	}
+
+	/**
+	 * A player is about to move
+	 * @param game The game
+	 * @param player The player to move
+	 */
+	public default void turnStarted(Game game, Player player) {
+	}
+
+	/**
+	 * A player made a move
+	 * @param game The game
+	 * @param player The player who moved
+	 * @param x The x coordinate of the move
+	 * @param y The y coordinate of the move
+	 */
+	public default void moveMade(Game game, Player player, int x, int y) {
+	}
+
+	/**
+	 * A player skipped because there are no valid moves
+	 * @param game The game
+	 * @param player The player who skipped
+	 */
+	public default void moveSkipped(Game game, Player player) {
+	}
+
+	/**
+	 * Both players have moved and the game continues
+	 * @param game The game
+	 * @param round The number of the round that ended
+	 * @return Whether to continue the game (false to stop, so the game can be saved)
+	 */
+	public default boolean roundEnded(Game game, int round) {
+		return true;
+	}
+
+	/**
+	 * The game is over
+	 * @param game The game
+	 * @param blocked The player whose lack of a valid move ended the game in the Traditional ruleset, or null
+	 */
+	public default void gameOver(Game game, Player blocked) {
+	}
+
+}
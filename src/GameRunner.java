@@ -0,0 +1,302 @@
+// Import Java libraries
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Class representing a headless runner playing series of computer vs computer games without any console output or prompts.
+ * <p>
+ * Games are spread over a thread pool; every game gets two new players with their own engines, so engines need not be thread safe.
+ * Players use no opening book and no endgame solver unless they are set, so results depend on the engines alone.
+ * Games are played in pairs from the same opening with the players swapping sides, and player 1 moves first in the first game of each pair.
+ * The openings are reproducible: a number of random moves chosen from the seed is played before the engines take over.
+ * Usage: java GameRunner [games] [threads] [engine 1] [engine 2] [archive directory], with engines given as greedy, alphabeta:depth or mcts:playouts
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class GameRunner {
+
+	/**
+	 * The number of random moves played from the start position if none is specified
+	 */
+	public static final int DEFAULT_RANDOM_MOVES = 4;
+
+	// Declare fields of object
+	private final Supplier<SearchEngine> engine1;
+	private final Supplier<SearchEngine> engine2;
+	private int gamemode = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int randomMoves = DEFAULT_RANDOM_MOVES;
+	private int endgameEmpties;
+	private long seed = 1;
+	private GameArchive archive;
+	private OpeningBook book;
+
+	/**
+	 * Constructor for a GameRunner between two engine configurations
+	 * @param pEngine1 Creates the engine of player 1 for each game
+	 * @param pEngine2 Creates the engine of player 2 for each game
+	 */
+	public GameRunner(Supplier<SearchEngine> pEngine1, Supplier<SearchEngine> pEngine2) {
+		engine1 = pEngine1;
+		engine2 = pEngine2;
+	}
+
+	/**
+	 * Play a series of games and combine their results
+	 * @param games The number of games to play
+	 * @return The result from the point of view of player 1
+	 */
+	public MatchResult run(int games) {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "GameRunner");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<int[]>> running = new ArrayList<Future<int[]>>();
+			for(int i = 0; i < games; i++) {
+				int game = i;
+				running.add(pool.submit(() -> playGame(game)));
+			}
+
+			// Collect the results in order, so the combined result does not depend on the number of threads
+			MatchResult result = new MatchResult();
+			for(Future<int[]> future : running) {
+				int[] game = future.get();
+				result.addGame(game[0], game[1]);
+			}
+			result.setTime((System.nanoTime() - start) / 1000000L);
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The games were interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Play one game of the series
+	 * @param game The number of the game (games 2n and 2n+1 share an opening)
+	 * @return The final number of pieces of player 1 minus those of player 2, and the number of moves made
+	 */
+	public int[] playGame(int game) {
+		Random random = new Random(seed * 31 + game / 2);
+
+		// The player moving first plays dark; in every other game player 2 moves first
+		boolean player1First = game % 2 == 0;
+		ComputerPlayer player1 = new ComputerPlayer(player1First ? -1 : 1, engine1.get());
+		ComputerPlayer player2 = new ComputerPlayer(player1First ? 1 : -1, engine2.get());
+		player1.setEndgameEmpties(endgameEmpties);
+		player2.setEndgameEmpties(endgameEmpties);
+		player1.setOpeningBook(book);
+		player2.setOpeningBook(book);
+
+		Grid grid = new Grid();
+		int colour = -1;
+
+		// Set up the board: in Traditional mode the centre fields are filled in turns at random
+		if(gamemode == 2) {
+			for(int i = 0; i < 4; i++) {
+				int square;
+				do {
+					square = Bitboard.square(3 + random.nextInt(2), 3 + random.nextInt(2));
+				} while(!grid.isEmpty(Bitboard.x(square), Bitboard.y(square)));
+				grid.placePiece(Bitboard.x(square), Bitboard.y(square), colour);
+				colour = -colour;
+			}
+		}
+		else {
+			grid.initialiseOthello();
+		}
+		grid.setSideToMove(colour);
+
+		// Play the random opening moves; the game itself handles a player without a valid move
+		for(int i = 0; i < randomMoves; i++) {
+			long moves = grid.legalMoves(colour);
+			if(moves == 0) {
+				break;
+			}
+			for(int j = random.nextInt(Long.bitCount(moves)); j > 0; j--) {
+				moves &= moves - 1;
+			}
+			int square = Long.numberOfTrailingZeros(moves);
+			grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+			colour = -colour;
+		}
+
+		// The engines play the rest of the game without any listeners, starting with the player to move
+		int startingPlayer = colour == player1.getColour() ? 1 : 2;
+		Game match = new Game(3, gamemode, player1, player2, startingPlayer, 1, grid, 0, false);
+		match.run();
+		int length = Long.bitCount(grid.getPieces(1) | grid.getPieces(-1)) - 4;
+
+		if(archive != null) {
+			try {
+				archive.append(grid, gamemode, 3);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		int difference = Long.bitCount(grid.getPieces(player1.getColour())) - Long.bitCount(grid.getPieces(player2.getColour()));
+		return new int[] {difference, length};
+	}
+
+	/**
+	 * Main method playing a series of games between two engines and printing the result
+	 * @param args The number of games, the number of threads, the two engines and a directory to archive the games in (all optional)
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		GameRunner runner = new GameRunner(engine(args.length > 2 ? args[2] : "alphabeta:4"), engine(args.length > 3 ? args[3] : "greedy"));
+		if(args.length > 1) {
+			runner.setThreads(Integer.parseInt(args[1]));
+		}
+		if(args.length > 4) {
+			try (GameArchive archive = new GameArchive(new File(args[4]))) {
+				runner.setArchive(archive);
+				System.out.println(runner.run(games));
+			} catch (IOException e) {
+				System.out.println("The archive could not be opened: " + e.getMessage());
+			}
+			return;
+		}
+		System.out.println(runner.run(games));
+	}
+
+	/**
+	 * Parse an engine description
+	 * @param description greedy, alphabeta:depth or mcts:playouts
+	 * @return Creates a new engine of that description
+	 */
+	public static Supplier<SearchEngine> engine(String description) {
+		String[] parts = description.split(":");
+		int value = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+		switch (parts[0].toLowerCase()) {
+		case "greedy":
+			return () -> new GreedyEngine();
+		case "alphabeta":
+			int depth = value > 0 ? value : ComputerPlayer.DEFAULT_DEPTH;
+			return () -> new AlphaBetaEngine(depth);
+		case "mcts":
+			int playouts = value > 0 ? value : 1000;
+			return () -> new MctsEngine(playouts);
+		default:
+			throw new IllegalArgumentException("Unknown engine " + description);
+		}
+	}
+
+	/**
+	 * @return the gamemode (1 Othello, 2 Traditional)
+	 */
+	public int getGamemode() {
+		return gamemode;
+	}
+
+	/**
+	 * @param gamemode the gamemode to set (1 Othello, 2 Traditional)
+	 */
+	public void setGamemode(int gamemode) {
+		this.gamemode = gamemode;
+	}
+
+	/**
+	 * @return the number of games played at the same time
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads the number of games played at the same time to set
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of random moves played at the start of each game
+	 */
+	public int getRandomMoves() {
+		return randomMoves;
+	}
+
+	/**
+	 * @param randomMoves the number of random moves played at the start of each game to set
+	 */
+	public void setRandomMoves(int randomMoves) {
+		this.randomMoves = randomMoves;
+	}
+
+	/**
+	 * @return the number of empty fields from which on both players solve the endgame exactly
+	 */
+	public int getEndgameEmpties() {
+		return endgameEmpties;
+	}
+
+	/**
+	 * @param endgameEmpties the number of empty fields from which on both players solve the endgame exactly to set (0, the default, to disable)
+	 */
+	public void setEndgameEmpties(int endgameEmpties) {
+		this.endgameEmpties = endgameEmpties;
+	}
+
+	/**
+	 * @return the archive every finished game is appended to (null if games are not archived)
+	 */
+	public GameArchive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * @param archive the archive every finished game is appended to (null to not archive games)
+	 */
+	public void setArchive(GameArchive archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * @return the opening book both players use (null if they play without one)
+	 */
+	public OpeningBook getOpeningBook() {
+		return book;
+	}
+
+	/**
+	 * @param book the opening book both players use to set (null to play without one)
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	/**
+	 * @return the seed of the random openings
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed the seed of the random openings to set
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+}
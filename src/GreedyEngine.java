@@ -0,0 +1,88 @@
+/**
+ * Class representing the original one move lookahead of the computer player, which plays the move flipping the most pieces
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class GreedyEngine implements SearchEngine {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = 4411978425369417126L;
+
+	// Statistics of the last search
+	private long nodes;
+	private long time;
+
+	/**
+	 * Determines the best possible move to make (based on number of pieces flipped)
+	 */
+	@Override
+	public int[] findBestMove(Grid grid, int colour) {
+		long start = System.nanoTime();
+
+		// Initialise local variables
+		int move[] = {-1,-1};
+		int maxScore = 0;
+
+		// Score all valid moves and keep the best one (ties go to the lowest x, then the lowest y coordinate)
+		long moves = grid.legalMoves(colour);
+		nodes = Long.bitCount(moves);
+		while(moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			int score = grid.getMoveScore(Bitboard.x(square), Bitboard.y(square), colour);
+			if(score > maxScore || (score == maxScore && Bitboard.x(square) < move[0])) {
+				move[0] = Bitboard.x(square);
+				move[1] = Bitboard.y(square);
+				maxScore = score;
+			}
+		}
+
+		time = System.nanoTime() - start;
+
+		// Return the best move
+		return move;
+	}
+
+	/**
+	 * The greedy search is too cheap to run in parallel, so the number of threads is ignored
+	 */
+	@Override
+	public void setThreads(int threads) {
+	}
+
+	/**
+	 * The greedy search only looks one move ahead and needs no time limit
+	 * @return 0, as there is no time limit
+	 */
+	@Override
+	public long getTimeLimit() {
+		return 0;
+	}
+
+	/**
+	 * The greedy search only looks one move ahead, so the time limit is ignored
+	 */
+	@Override
+	public void setTimeLimit(long timeLimit) {
+	}
+
+	/**
+	 * @return the nodes
+	 */
+	@Override
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes per second
+	 */
+	@Override
+	public double getNodesPerSecond() {
+		return time > 0 ? nodes * 1e9 / time : 0;
+	}
+
+}
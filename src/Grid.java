@@ -1,3 +1,8 @@
+// Import Java libraries
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
 /**
  * Class representing a Reversi board grid
  * 
@@ -16,11 +21,58 @@ public class Grid implements java.io.Serializable {
 	 */
 	public static final String[] LETTER_REFERENCE = {"A","B","C","D","E","F","G","H","I","J","K","L","M","N","O","P","Q","R","S","T","U","V"+"W"+"X"+"Y"+"Z"};
 
+	/**
+	 * The number of moves the history holds before it grows. A complete game never needs more (at most 60 moves and 60 passes).
+	 */
+	public static final int HISTORY_SIZE = 128;
+
+	/**
+	 * Field index recorded in the history for a pass
+	 */
+	public static final int PASS = -1;
+
+	// Zobrist keys for light and dark pieces on each field and for the colour to move
+	private static final long[] ZOBRIST_LIGHT = new long[Bitboard.SQUARES];
+	private static final long[] ZOBRIST_DARK = new long[Bitboard.SQUARES];
+	private static final long[] ZOBRIST_FLIP = new long[Bitboard.SQUARES];
+	private static final long ZOBRIST_LIGHT_TO_MOVE;
+	private static final long ZOBRIST_DARK_TO_MOVE;
+
+	static {
+		// Keys are generated from a fixed seed (SplitMix64) so hashes stay the same across runs and releases
+		long seed = 0x5265766572736921L;
+		for(int i = 0; i < Bitboard.SQUARES; i++) {
+			seed += 0x9e3779b97f4a7c15L;
+			ZOBRIST_LIGHT[i] = mix(seed);
+			seed += 0x9e3779b97f4a7c15L;
+			ZOBRIST_DARK[i] = mix(seed);
+			ZOBRIST_FLIP[i] = ZOBRIST_LIGHT[i] ^ ZOBRIST_DARK[i];
+		}
+		seed += 0x9e3779b97f4a7c15L;
+		ZOBRIST_LIGHT_TO_MOVE = mix(seed);
+		seed += 0x9e3779b97f4a7c15L;
+		ZOBRIST_DARK_TO_MOVE = mix(seed);
+	}
+
 	// Initialise local fields
-	private Piece[][] pieces;
+	private long light;
+	private long dark;
 	private int sizeX;
 	private int sizeY;
 	
+	// The colour to move next (0 if not known yet) and the Zobrist hash of the position, which is kept up to date by every change
+	private int sideToMove;
+	private transient long hash;
+	
+	// Undo stack: the field, the flipped pieces and the previous colour to move of every move made, in order
+	private int[] historySquares;
+	private long[] historyFlips;
+	private byte[] historySides;
+	private int historyLength;
+	
+	// Codes of the evaluation patterns (see PatternEvaluator), computed on first use and then kept up to date by every move
+	private transient int[] patternCodes;
+	
 	/**
 	 * Constructor initialising the standard Reversi grid of (8x8)
 	 */
@@ -28,13 +80,30 @@ public class Grid implements java.io.Serializable {
 		
 		sizeX = 8;
 		sizeY = 8;
-		pieces = new Piece[sizeX][sizeY];
+		light = 0;
+		dark = 0;
+		historySquares = new int[HISTORY_SIZE];
+		historyFlips = new long[HISTORY_SIZE];
+		historySides = new byte[HISTORY_SIZE];
+		historyLength = 0;
+		sideToMove = 0;
+		hash = 0;
 		
-		for(int i = 0; i < sizeX; i++) {
-			for(int j = 0; j < sizeY; j++) {
-				pieces[i][j] = new Piece();
-			}
-		}
+	}
+	
+	/**
+	 * Constructor copying the position of another grid (the history of moves is not copied)
+	 * @param other The grid to copy
+	 */
+	public Grid(Grid other) {
+		
+		this();
+		sizeX = other.sizeX;
+		sizeY = other.sizeY;
+		light = other.light;
+		dark = other.dark;
+		sideToMove = other.sideToMove;
+		hash = other.hash;
 		
 	}
 	
@@ -43,10 +112,10 @@ public class Grid implements java.io.Serializable {
 	 * @see <a href="https://en.wikipedia.org/wiki/Reversi#Othello">Wikipedia page on Reversi/Othello</a>
 	 */
 	public void initialiseOthello() {
-		pieces[4][3].setColour(-1);
-		pieces[3][4].setColour(-1);
-		pieces[3][3].setColour(1);
-		pieces[4][4].setColour(1);
+		placePiece(4, 3, -1);
+		placePiece(3, 4, -1);
+		placePiece(3, 3, 1);
+		placePiece(4, 4, 1);
 	}
 	
 	/**
@@ -56,7 +125,131 @@ public class Grid implements java.io.Serializable {
 	 * @return Whether the field is empty (true) or not (false)
 	 */
 	public boolean isEmpty(int x, int y) {
-		return (pieces[x][y].getColour() == 0);
+		return ((light | dark) & (1L << Bitboard.square(x, y))) == 0;
+	}
+	
+	/**
+	 * Get the colour of the piece on a field
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return The colour (1 if light, -1 if dark, 0 if empty)
+	 */
+	public int getColour(int x, int y) {
+		long field = 1L << Bitboard.square(x, y);
+		if((light & field) != 0) {
+			return 1;
+		}
+		else if((dark & field) != 0) {
+			return -1;
+		}
+		else {
+			return 0;
+		}
+	}
+	
+	/**
+	 * Get the bitboard of all pieces of a colour (bit y*8 + x is set if the field (x,y) holds such a piece)
+	 * @param colour The colour (1 for light, -1 for dark)
+	 * @return The bitboard
+	 */
+	public long getPieces(int colour) {
+		return colour == 1 ? light : dark;
+	}
+	
+	/**
+	 * Replace the whole board with the given bitboards, e.g. to restore a position saved with getPieces().
+	 * Moves made before cannot be taken back afterwards.
+	 * @param light The bitboard of all light pieces
+	 * @param dark The bitboard of all dark pieces
+	 */
+	public void setPieces(long light, long dark) {
+		this.light = light;
+		this.dark = dark;
+		historyLength = 0;
+		hash = hash(light, dark, sideToMove);
+		patternCodes = null;
+	}
+	
+	/**
+	 * Get the codes of the evaluation patterns of the position, which are kept up to date from the first call on
+	 * @return The codes (see PatternEvaluator), not to be changed
+	 */
+	public int[] getPatternCodes() {
+		if(patternCodes == null) {
+			patternCodes = new int[PatternEvaluator.PATTERNS];
+			PatternEvaluator.computeCodes(light, dark, patternCodes);
+		}
+		return patternCodes;
+	}
+	
+	/**
+	 * Get the 64 bit Zobrist hash of the position, including the colour to move
+	 * @return The hash
+	 */
+	public long hash() {
+		return hash;
+	}
+	
+	/**
+	 * Compute the Zobrist hash of a position from scratch (Grid.hash() returns the same value for its position)
+	 * @param light The bitboard of all light pieces
+	 * @param dark The bitboard of all dark pieces
+	 * @param sideToMove The colour to move (0 if not known)
+	 * @return The hash
+	 */
+	public static long hash(long light, long dark, int sideToMove) {
+		long hash = sideKey(sideToMove);
+		for(long b = light; b != 0; b &= b - 1) {
+			hash ^= ZOBRIST_LIGHT[Long.numberOfTrailingZeros(b)];
+		}
+		for(long b = dark; b != 0; b &= b - 1) {
+			hash ^= ZOBRIST_DARK[Long.numberOfTrailingZeros(b)];
+		}
+		return hash;
+	}
+	
+	/**
+	 * Get the Zobrist key of the colour to move
+	 * @param colour The colour to move (0 if not known)
+	 * @return The key
+	 */
+	private static long sideKey(int colour) {
+		if(colour == 1) {
+			return ZOBRIST_LIGHT_TO_MOVE;
+		}
+		else if(colour == -1) {
+			return ZOBRIST_DARK_TO_MOVE;
+		}
+		else {
+			return 0;
+		}
+	}
+	
+	/**
+	 * SplitMix64 finaliser used to generate the Zobrist keys
+	 * @param z The value to mix
+	 * @return The mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * @return The colour to move next (0 if not known yet)
+	 */
+	public int getSideToMove() {
+		return sideToMove;
+	}
+	
+	/**
+	 * Set the colour to move next. This is done automatically by makeMove() and pass().
+	 * @param colour The colour to move
+	 */
+	public void setSideToMove(int colour) {
+		hash ^= sideKey(sideToMove) ^ sideKey(colour);
+		sideToMove = colour;
 	}
 	
 	/**
@@ -66,8 +259,48 @@ public class Grid implements java.io.Serializable {
 	 * @param colour The colour to set
 	 */
 	public void placePiece(int x, int y, int colour) {
-		if(pieces[x][y].getColour() == 0) {
-			pieces[x][y].setColour(colour);
+		if(isEmpty(x, y)) {
+			int square = Bitboard.square(x, y);
+			if(colour == 1) {
+				light |= 1L << square;
+				hash ^= ZOBRIST_LIGHT[square];
+			}
+			else if(colour == -1) {
+				dark |= 1L << square;
+				hash ^= ZOBRIST_DARK[square];
+			}
+			patternCodes = null;
+		}
+	}
+	
+	/**
+	 * Restores a grid from a save file. Saves written before the grid was stored as bitboards still contain the
+	 * board as an array of Piece objects, which is converted here.
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read
+	 * @throws ClassNotFoundException If the saved classes cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		sizeX = fields.get("sizeX", 8);
+		sizeY = fields.get("sizeY", 8);
+		light = fields.get("light", 0L);
+		dark = fields.get("dark", 0L);
+		historySquares = (int[]) fields.get("historySquares", new int[HISTORY_SIZE]);
+		historyFlips = (long[]) fields.get("historyFlips", new long[HISTORY_SIZE]);
+		historySides = (byte[]) fields.get("historySides", new byte[HISTORY_SIZE]);
+		historyLength = fields.get("historyLength", 0);
+		sideToMove = fields.get("sideToMove", 0);
+		hash = hash(light, dark, sideToMove);
+		
+		// Convert legacy saves (only they contain the pieces field)
+		Piece[][] pieces = fields.getObjectStreamClass().getField("pieces") != null ? (Piece[][]) fields.get("pieces", null) : null;
+		if(pieces != null) {
+			for(int i = 0; i < pieces.length; i++) {
+				for(int j = 0; j < pieces[i].length; j++) {
+					placePiece(i, j, pieces[i][j].getColour());
+				}
+			}
 		}
 	}
 	
@@ -101,10 +334,10 @@ public class Grid implements java.io.Serializable {
 			for(int x = 0; x < sizeX; x++) {
 			
 				System.out.print("| ");
-				if(pieces[x][y].getColour()==-1) {
+				if(getColour(x, y) == -1) {
 					System.out.print("O");
 				}
-				else if(pieces[x][y].getColour()==1) {
+				else if(getColour(x, y) == 1) {
 					System.out.print("X");
 				}
 				else {
@@ -146,6 +379,9 @@ public class Grid implements java.io.Serializable {
 		}
 		System.out.println();
 		
+		// Determine all valid moves for hints
+		long moves = legalMoves(colour);
+		
 		// Print each row
 		for(int y = 0; y < sizeY; y++) {
 			
@@ -156,16 +392,16 @@ public class Grid implements java.io.Serializable {
 			for(int x = 0; x < sizeX; x++) {
 			
 				System.out.print("| ");
-				if(pieces[x][y].getColour()==-1) {
+				if(getColour(x, y) == -1) {
 					System.out.print("O");
 				}
-				else if(pieces[x][y].getColour()==1) {
+				else if(getColour(x, y) == 1) {
 					System.out.print("X");
 				}
 				
 				//Show hints if move is valid for specified colour
 				else {
-					if(checkMoveValid(x,y,colour)) {
+					if((moves & (1L << Bitboard.square(x, y))) != 0) {
 						System.out.print("*");
 					}
 					else {
@@ -197,477 +433,191 @@ public class Grid implements java.io.Serializable {
 	 */
 	public boolean checkMoveValid(int x, int y, int colour) {
 		
-		// Check whether field is empty
-		if(pieces[x][y].getColour() != 0) {
+		// Check whether field is empty and borders at least one opposing piece
+		int square = Bitboard.square(x, y);
+		if(((light | dark) & (1L << square)) != 0 || (getPieces(-colour) & Bitboard.neighbours(square)) == 0) {
 			return false;
 		}
 		
-		// Set oppositeColour variable
-		int oppositeColour;
-		if(colour == 1) {
-			oppositeColour = -1;
-		}
-		else {
-			oppositeColour = 1;
-		}
-		
-		// Declare local fields
-		int validDirections = 0;
-		int counter;
+		// The move is valid if it flips at least one piece
+		return Bitboard.flips(square, getPieces(colour), getPieces(-colour)) != 0;
+	}
+	
+	/**
+	 * Makes a move on the grid, if valid
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @param colour The colour of the move
+	 * @return A token to take the move back with unmakeMove(), or 0 if the move was invalid and has not been made
+	 */
+	public int makeMove(int x, int y, int colour) {
 		
-		// Check left
-		counter = 0;
-		for(int i = 1; (x-i) >= 0; i++) {
-			if(pieces[x-i][y].getColour() == 0) {
-				break;
-			}
-			if(pieces[x-i][y].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x-i][y].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		// Check if move is valid
+		int square = Bitboard.square(x, y);
+		if(((light | dark) & (1L << square)) != 0) {
+			return 0;
 		}
-		
-		// Check left up
-		counter = 0;
-		for(int i = 1; (x-i) >= 0 && (y-i) >= 0; i++) {
-			if(pieces[x-i][y-i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x-i][y-i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x-i][y-i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		long flips = Bitboard.flips(square, getPieces(colour), getPieces(-colour));
+		if(flips == 0) {
+			return 0;
 		}
 		
-		// Check up
-		counter = 0;
-		for(int i = 1; (y-i) >= 0; i++) {
-			if(pieces[x][y-i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x][y-i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x][y-i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		// Place new piece and flip all enclosed pieces
+		long move = 1L << square;
+		if(colour == 1) {
+			light |= move | flips;
+			dark &= ~flips;
+			hash ^= ZOBRIST_LIGHT[square];
 		}
-		
-		// Check right up
-		counter = 0;
-		for(int i = 1; (y-i) >= 0 && (x+i) < sizeX; i++) {
-			if(pieces[x+i][y-i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x+i][y-i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x+i][y-i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		else {
+			dark |= move | flips;
+			light &= ~flips;
+			hash ^= ZOBRIST_DARK[square];
 		}
-		
-		// Check right
-		counter = 0;
-		for(int i = 1; (x+i) < sizeX; i++) {
-			if(pieces[x+i][y].getColour() == 0) {
-				break;
-			}
-			if(pieces[x+i][y].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x+i][y].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		for(long b = flips; b != 0; b &= b - 1) {
+			hash ^= ZOBRIST_FLIP[Long.numberOfTrailingZeros(b)];
 		}
-		
-		// Check right down
-		counter = 0;
-		for(int i = 1; (y+i) < sizeY && (x+i) < sizeX; i++) {
-			if(pieces[x+i][y+i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x+i][y+i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x+i][y+i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
-				}
-			}
+		if(patternCodes != null) {
+			PatternEvaluator.makeMove(patternCodes, square, flips, colour);
 		}
 		
-		// Check down
-		counter = 0;
-		for(int i = 1; (y+i) < sizeY; i++) {
-			if(pieces[x][y+i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x][y+i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x][y+i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
-				}
-				else {
-					break;
+		// Record the move so it can be taken back, then hand the move to the opponent
+		int token = record(square, flips);
+		setSideToMove(-colour);
+		return token;
+	}
+	
+	/**
+	 * Passes the turn of the colour to move to the opponent without changing the board
+	 * @return A token to take the pass back with unmakeMove()
+	 */
+	public int pass() {
+		int token = record(PASS, 0);
+		setSideToMove(-sideToMove);
+		return token;
+	}
+	
+	/**
+	 * Push a move onto the undo stack, growing it if it is full so every token handed out stays valid
+	 * @param square The field of the move (PASS for a pass)
+	 * @param flips The pieces flipped by the move
+	 * @return The token of the move
+	 */
+	private int record(int square, long flips) {
+		if(historyLength == historySquares.length) {
+			int size = Math.max(HISTORY_SIZE, 2 * historyLength);
+			historySquares = Arrays.copyOf(historySquares, size);
+			historyFlips = Arrays.copyOf(historyFlips, size);
+			historySides = Arrays.copyOf(historySides, size);
+		}
+		historySquares[historyLength] = square;
+		historyFlips[historyLength] = flips;
+		historySides[historyLength] = (byte) sideToMove;
+		historyLength++;
+		return historyLength;
+	}
+	
+	/**
+	 * Takes back a move, and every move made after it, restoring the grid to the exact state before the move
+	 * @param token The token returned by makeMove()
+	 */
+	public void unmakeMove(int token) {
+		while(historyLength >= token && historyLength > 0) {
+			historyLength--;
+			int square = historySquares[historyLength];
+			long flips = historyFlips[historyLength];
+			
+			// Remove the placed piece and give the flipped pieces back to the opponent (nothing to do for a pass)
+			if(square != PASS) {
+				long move = 1L << square;
+				if(patternCodes != null) {
+					PatternEvaluator.unmakeMove(patternCodes, square, flips, (light & move) != 0 ? 1 : -1);
 				}
-			}
-		}
-		
-		// Check left down
-		counter = 0;
-		for(int i = 1; (x-i) >= 0 && (y+i) < sizeY; i++) {
-			if(pieces[x-i][y+i].getColour() == 0) {
-				break;
-			}
-			if(pieces[x-i][y+i].getColour() == oppositeColour) {
-				counter++;
-			}
-			if(pieces[x-i][y+i].getColour() == colour) {
-				if(counter > 0) {
-					validDirections++;
-					break;
+				if((light & move) != 0) {
+					light &= ~(move | flips);
+					dark |= flips;
+					hash ^= ZOBRIST_LIGHT[square];
 				}
 				else {
-					break;
+					dark &= ~(move | flips);
+					light |= flips;
+					hash ^= ZOBRIST_DARK[square];
+				}
+				for(long b = flips; b != 0; b &= b - 1) {
+					hash ^= ZOBRIST_FLIP[Long.numberOfTrailingZeros(b)];
 				}
 			}
-		}
-		
-		
-		// Return true if the move is valid, false if invalid
-		if(validDirections>0) {
-			return true;
-		}
-		else {
-			return false;
+			setSideToMove(historySides[historyLength]);
 		}
 	}
 	
 	/**
-	 * Makes a move on the grid, if valid
-	 * @param x The x coordinate
-	 * @param y The y coordinate
-	 * @param colour The colour of the move
+	 * @return The number of moves (including passes) that can currently be taken back
 	 */
-	public void makeMove(int x, int y, int colour) {
-		
-		// Check if move is valid
-		if(checkMoveValid(x,y,colour) == true) {
-			
-			// Place new piece
-			pieces[x][y].setColour(colour);
-			
-			// Set opposite colour variable
-			int oppositeColour;
-			if(colour == 1) {
-				oppositeColour = -1;
+	public int getHistoryLength() {
+		return historyLength;
+	}
+
+	/**
+	 * Get a move of the history
+	 * @param index The index of the move (0 is the oldest move that can be taken back)
+	 * @return The field index of the move, or PASS
+	 */
+	public int getHistoryMove(int index) {
+		return historySquares[index];
+	}
+
+	/**
+	 * Get the colour that made a move of the history
+	 * @param index The index of the move (0 is the oldest move that can be taken back)
+	 * @return The colour that moved or passed
+	 */
+	public int getHistoryColour(int index) {
+		// Every move hands the turn to the opponent, so the colour to move after it is the opposite colour
+		return index + 1 < historyLength ? -historySides[index + 1] : -sideToMove;
+	}
+
+	/**
+	 * Get the pieces of a colour before the oldest move of the history, without changing the grid
+	 * @param colour The colour (1 for light, -1 for dark)
+	 * @return The bitboard of the pieces
+	 */
+	public long getStartPieces(int colour) {
+		long own = getPieces(colour);
+		long opponent = getPieces(-colour);
+		for(int i = historyLength - 1; i >= 0; i--) {
+			if(historySquares[i] == PASS) {
+				continue;
+			}
+			// Remove the placed piece and give the flipped pieces back
+			long move = 1L << historySquares[i];
+			long flips = historyFlips[i];
+			if((own & move) != 0) {
+				own &= ~(move | flips);
+				opponent |= flips;
 			}
 			else {
-				oppositeColour = 1;
-			}
-			
-			// Declare necessary fields
-			int counter;
-			boolean accepted;
-			
-			// Check for flips in left direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0; i++) {
-				if(pieces[x-i][y].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0; i++) {
-					if(pieces[x-i][y].getColour() == oppositeColour) {
-						pieces[x-i][y].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in left up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0 && (y-i) >= 0; i++) {
-				if(pieces[x-i][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0 && (y-i) >= 0; i++) {
-					if(pieces[x-i][y-i].getColour() == oppositeColour) {
-						pieces[x-i][y-i].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y-i) >= 0; i++) {
-				if(pieces[x][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (y-i) >= 0; i++) {
-					if(pieces[x][y-i].getColour() == oppositeColour) {
-						pieces[x][y-i].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y-i) >= 0 && (x+i) < sizeX; i++) {
-				if(pieces[x+i][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (y-i) >= 0 && (x+i) < sizeX; i++) {
-					if(pieces[x+i][y-i].getColour() == oppositeColour) {
-						pieces[x+i][y-i].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x+i) < sizeX; i++) {
-				if(pieces[x+i][y].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (x+i) < sizeX; i++) {
-					if(pieces[x+i][y].getColour() == oppositeColour) {
-						pieces[x+i][y].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y+i) < sizeY && (x+i) < sizeX; i++) {
-				if(pieces[x+i][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (y+i) < sizeY && (x+i) < sizeX; i++) {
-					if(pieces[x+i][y+i].getColour() == oppositeColour) {
-						pieces[x+i][y+i].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y+i) < sizeY; i++) {
-				if(pieces[x][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (y+i) < sizeY; i++) {
-					if(pieces[x][y+i].getColour() == oppositeColour) {
-						pieces[x][y+i].flip();
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in left down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0 && (y+i) < sizeY; i++) {
-				if(pieces[x-i][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Flip required pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0 && (y+i) < sizeY; i++) {
-					if(pieces[x-i][y+i].getColour() == oppositeColour) {
-						pieces[x-i][y+i].flip();
-					}
-					else {
-						break;
-					}
-				}
+				opponent &= ~(move | flips);
+				own |= flips;
 			}
 		}
+		return own;
+	}
+
+	/**
+	 * @return The colour to move before the oldest move of the history (0 if not known)
+	 */
+	public int getStartSideToMove() {
+		return historyLength > 0 ? historySides[0] : sideToMove;
+	}
+	
+	/**
+	 * Determine every valid move for a colour in a single pass over the board
+	 * @param colour The colour to play
+	 * @return A bitboard where bit (y*8 + x) is set if the move (x,y) is valid
+	 */
+	public long legalMoves(int colour) {
+		return Bitboard.legalMoves(getPieces(colour), getPieces(-colour));
 	}
 	
 	/**
@@ -675,22 +625,7 @@ public class Grid implements java.io.Serializable {
 	 * @return Whether any valid moves are possible
 	 */
 	public boolean checkValidMoves() {
-		
-		int validMoves = 0;
-		for(int i = 0; i < sizeX; i++) {
-			for(int j = 0; j < sizeY; j++) {
-				if(checkMoveValid(i,j,1) == true || checkMoveValid(i,j,-1) == true) {
-					validMoves++;
-				}
-			}
-		}
-		if(validMoves > 0) {
-			return true;
-		}
-		else {
-			return false;
-		}
-		
+		return legalMoves(1) != 0 || legalMoves(-1) != 0;
 	}
 	
 	/**
@@ -699,22 +634,7 @@ public class Grid implements java.io.Serializable {
 	 * @return Whether any valid moves are possible
 	 */
 	public boolean checkValidMoves(int colour) {
-		
-		int validMoves = 0;
-		for(int i = 0; i < sizeX; i++) {
-			for(int j = 0; j < sizeY; j++) {
-				if(checkMoveValid(i,j,colour) == true) {
-					validMoves++;
-				}
-			}
-		}
-		if(validMoves > 0) {
-			return true;
-		}
-		else {
-			return false;
-		}
-		
+		return legalMoves(colour) != 0;
 	}
 	
 	/**
@@ -726,283 +646,18 @@ public class Grid implements java.io.Serializable {
 	 */
 	public int getMoveScore(int x, int y, int colour) {
 		
-		if(checkMoveValid(x,y,colour) == true) {
-			
-			// Set opposite colour variable
-			int oppositeColour;
-			if(colour == 1) {
-				oppositeColour = -1;
-			}
-			else {
-				oppositeColour = 1;
-			}
-			
-			// Declare variables
-			int score = 1;
-			int counter;
-			boolean accepted;
-			
-			// Check for flips in left direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0; i++) {
-				if(pieces[x-i][y].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0; i++) {
-					if(pieces[x-i][y].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in left up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0 && (y-i) >= 0; i++) {
-				if(pieces[x-i][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0 && (y-i) >= 0; i++) {
-					if(pieces[x-i][y-i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y-i) >= 0; i++) {
-				if(pieces[x][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (y-i) >= 0; i++) {
-					if(pieces[x][y-i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right up direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y-i) >= 0 && (x+i) < sizeX; i++) {
-				if(pieces[x+i][y-i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y-i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y-i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (y-i) >= 0 && (x+i) < sizeX; i++) {
-					if(pieces[x+i][y-i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x+i) < sizeX; i++) {
-				if(pieces[x+i][y].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (x+i) < sizeX; i++) {
-					if(pieces[x+i][y].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in right down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y+i) < sizeY && (x+i) < sizeX; i++) {
-				if(pieces[x+i][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x+i][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x+i][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (y+i) < sizeY && (x+i) < sizeX; i++) {
-					if(pieces[x+i][y+i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (y+i) < sizeY; i++) {
-				if(pieces[x][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (y+i) < sizeY; i++) {
-					if(pieces[x][y+i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			
-			// Check for flips in left down direction
-			accepted = false;
-			counter = 0;
-			for(int i = 1; (x-i) >= 0 && (y+i) < sizeY; i++) {
-				if(pieces[x-i][y+i].getColour() == 0) {
-					break;
-				}
-				if(pieces[x-i][y+i].getColour() == oppositeColour) {
-					counter++;
-				}
-				if(pieces[x-i][y+i].getColour() == colour) {
-					if(counter > 0) {
-						accepted = true;
-						break;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			// Count flippable pieces
-			if(accepted == true) {
-				for(int i = 1; (x-i) >= 0 && (y+i) < sizeY; i++) {
-					if(pieces[x-i][y+i].getColour() == oppositeColour) {
-						score++;
-					}
-					else {
-						break;
-					}
-				}
-			}
-			return score;	
+		// Invalid moves score 0
+		int square = Bitboard.square(x, y);
+		if(((light | dark) & (1L << square)) != 0) {
+			return 0;
 		}
-		else {
+		long flips = Bitboard.flips(square, getPieces(colour), getPieces(-colour));
+		if(flips == 0) {
 			return 0;
 		}
 		
+		// The placed piece plus every flipped piece
+		return 1 + Long.bitCount(flips);
 	}
 	
 	/**
@@ -1013,20 +668,12 @@ public class Grid implements java.io.Serializable {
 		
 		// Initialise variables
 		int[] results = new int[3];
-		int light = 0;
-		int dark = 0;
+		int light;
+		int dark;
 		
 		// Count points
-		for(int i = 0; i < sizeX; i++) {
-			for(int j = 0; j < sizeY; j++) {
-				if(pieces[i][j].getColour() == -1) {
-					dark++;
-				}
-				else if(pieces[i][j].getColour() == 1) {
-					light++;
-				}
-			}
-		}
+		light = Long.bitCount(this.light);
+		dark = Long.bitCount(this.dark);
 		
 		// Determine winner
 		if(light == dark) {
@@ -21,48 +21,32 @@ public class HumanPlayer extends Player implements java.io.Serializable {
 	}
 	
 	/**
-	 * Overrides the makeMove() method of Player
+	 * Overrides the chooseMove() method of Player
 	 */
 	@Override
-	public void makeMove(Grid grid) {
-		
-		// Initialise local variables
-		boolean validMove = false;
-		int[] moveCoords = null;
+	public int[] chooseMove(Grid grid) {
 		
 		// Get a valid move from the user
-		while(!validMove) {
+		while(true) {
 			int[] input = InputOutput.getValidAlphanumeric(grid.getSizeX(), grid.getSizeY(), getName() + " (" + getColourSymbol() + ")" + " - Enter your move: ");
 			if(grid.checkMoveValid(input[0], input[1], getColour())){
-				moveCoords = input;
-				validMove = true;
-			}
-			else {
-				System.out.println("This move is not valid, please try again.");
+				return input;
 			}
-		}
-		
-		// Attempt to make a move on the Reversi board
-		try {
-			grid.makeMove(moveCoords[0], moveCoords[1], getColour());
-		} catch (Exception e) {
-			System.out.println("Something went wrong, please try again.");
-			makeMove(grid);
+			System.out.println("This move is not valid, please try again.");
 		}
 	}
 
 	/**
-	 * Place a piece in the centre 4 fields as part of the setup in traditional Reversi
+	 * Ask the user for a centre field to place a piece on as part of the setup in traditional Reversi
 	 */
 	@Override
-	public void placeCentrePiece(Grid grid) {
-		int move[] = InputOutput.getValidAlphanumericCentre(getName() + ": Please enter a field to place your piece on: ");
-		if(grid.isEmpty(move[0], move[1])) {
-			grid.placePiece(move[0], move[1], getColour());
-		}
-		else {
+	public int[] chooseCentrePiece(Grid grid) {
+		while(true) {
+			int move[] = InputOutput.getValidAlphanumericCentre(getName() + ": Please enter a field to place your piece on: ");
+			if(grid.isEmpty(move[0], move[1])) {
+				return move;
+			}
 			System.out.println("This field is invalid, please try again.");
-			placeCentrePiece(grid);
 		}
 	}
 	
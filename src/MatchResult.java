@@ -0,0 +1,122 @@
+/**
+ * Class representing the combined result of a series of games between two players
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class MatchResult implements java.io.Serializable {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = 3852176095016742318L;
+
+	// Declare fields of object
+	private int games;
+	private int player1Wins;
+	private int player2Wins;
+	private int draws;
+	private long discDifferential;
+	private long moves;
+	private long time;
+
+	/**
+	 * Add the result of a game
+	 * @param difference The final number of pieces of player 1 minus those of player 2
+	 * @param length The number of moves made in the game (not counting skipped moves)
+	 */
+	public void addGame(int difference, int length) {
+		games++;
+		if(difference > 0) {
+			player1Wins++;
+		}
+		else if(difference < 0) {
+			player2Wins++;
+		}
+		else {
+			draws++;
+		}
+		discDifferential += difference;
+		moves += length;
+	}
+
+	/**
+	 * @return the games
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * @return the player1Wins
+	 */
+	public int getPlayer1Wins() {
+		return player1Wins;
+	}
+
+	/**
+	 * @return the player2Wins
+	 */
+	public int getPlayer2Wins() {
+		return player2Wins;
+	}
+
+	/**
+	 * @return the draws
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * @return The share of points won by player 1 (a draw counts half)
+	 */
+	public double getPlayer1Score() {
+		return games > 0 ? (player1Wins + draws / 2.0) / games : 0;
+	}
+
+	/**
+	 * @return The total number of pieces player 1 finished ahead of player 2 over all games
+	 */
+	public long getDiscDifferential() {
+		return discDifferential;
+	}
+
+	/**
+	 * @return The average number of pieces player 1 finished ahead of player 2
+	 */
+	public double getAverageDiscDifferential() {
+		return games > 0 ? (double) discDifferential / games : 0;
+	}
+
+	/**
+	 * @return The average number of moves per game
+	 */
+	public double getAverageLength() {
+		return games > 0 ? (double) moves / games : 0;
+	}
+
+	/**
+	 * @return the time taken to play all games in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param time the time taken to play all games in milliseconds to set
+	 */
+	public void setTime(long time) {
+		this.time = time;
+	}
+
+	/**
+	 * Summarise the result in one line
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d games: %d wins, %d losses, %d draws for player 1 (score %.1f%%), average disc differential %+.2f, average length %.1f moves, %.1f s",
+				games, player1Wins, player2Wins, draws, 100 * getPlayer1Score(), getAverageDiscDifferential(), getAverageLength(), time / 1000.0);
+	}
+
+}
@@ -0,0 +1,602 @@
+// Import Java libraries
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class representing a Monte Carlo tree search (UCT) that plays random games from the position to find the move that wins most often.
+ * <p>
+ * The tree is stored in an arena of primitive arrays indexed by node number; the children of a node are allocated as one consecutive block.
+ * The tree and the random games both run on bitboards, so no Grid objects are created during the search.
+ * <p>
+ * With more than one thread the engine searches either root parallel (every thread builds its own tree and the visits of the
+ * root moves are added up at the end) or tree parallel (all threads share one tree). In a shared tree a node counts as visited
+ * as soon as a thread passes through it, before the result of its game is known (virtual loss), which steers the other threads
+ * to different moves until the result is added.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class MctsEngine implements SearchEngine {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = 7640188256113625219L;
+
+	/**
+	 * The exploration constant of the UCT formula used if none is specified
+	 */
+	public static final double DEFAULT_EXPLORATION = 1.0;
+
+	/**
+	 * The number of tree nodes per tree used if none is specified (about 18 MB per tree)
+	 */
+	public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+	/**
+	 * A leaf is expanded once it has been visited this often
+	 */
+	private static final int EXPANSION_VISITS = 2;
+
+	/**
+	 * Stored as the move of a node reached by passing
+	 */
+	private static final int PASS = 64;
+
+	/**
+	 * The longest possible path through the tree (60 moves, each possibly preceded by a pass)
+	 */
+	private static final int MAX_PATH = 128;
+
+	// Expansion states of a node
+	private static final int UNEXPANDED = 0;
+	private static final int EXPANDING = 1;
+	private static final int EXPANDED = 2;
+
+	/**
+	 * Atomic access to the int arrays of a tree shared by several threads
+	 */
+	private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	// Search settings
+	private long playoutLimit;
+	private long timeLimit;
+	private int threads = 1;
+	private boolean treeParallel;
+	private int maxNodes;
+	private double exploration = DEFAULT_EXPLORATION;
+
+	// Statistics of the last search
+	private long nodes;
+	private long time;
+	private double winRate;
+	private int treeSize;
+
+	// Trees and threads, kept between searches
+	private transient Tree[] trees;
+	private transient ExecutorService pool;
+	private transient long deadline;
+
+	/**
+	 * Constructor for an MctsEngine playing a fixed number of random games per move
+	 * @param pPlayoutLimit The number of random games to play per move
+	 */
+	public MctsEngine(long pPlayoutLimit) {
+		this(pPlayoutLimit, DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * Constructor for an MctsEngine
+	 * @param pPlayoutLimit The number of random games to play per move (0 for no limit, then a time limit must be set)
+	 * @param pMaxNodes The maximum number of nodes per tree (leaves are no longer expanded once the tree is full)
+	 */
+	public MctsEngine(long pPlayoutLimit, int pMaxNodes) {
+		playoutLimit = pPlayoutLimit;
+		maxNodes = pMaxNodes;
+	}
+
+	/**
+	 * Create an MctsEngine playing random games until a time limit per move runs out
+	 * @param pTimeLimit The time limit per move in milliseconds
+	 * @return The engine
+	 */
+	public static MctsEngine withTimeLimit(long pTimeLimit) {
+		MctsEngine engine = new MctsEngine(0);
+		engine.setTimeLimit(pTimeLimit);
+		return engine;
+	}
+
+	/**
+	 * Play random games until the playout or time limit is reached and return the root move that was visited most often
+	 */
+	@Override
+	public int[] findBestMove(Grid grid, int colour) {
+		long start = System.nanoTime();
+		nodes = 0;
+		treeSize = 0;
+
+		long player = grid.getPieces(colour);
+		long opponent = grid.getPieces(-colour);
+		long moves = Bitboard.legalMoves(player, opponent);
+		int[] move = {-1,-1};
+
+		// There is nothing to search without a choice of moves
+		if(Long.bitCount(moves) <= 1) {
+			if(moves != 0) {
+				move[0] = Bitboard.x(Long.numberOfTrailingZeros(moves));
+				move[1] = Bitboard.y(Long.numberOfTrailingZeros(moves));
+			}
+			time = System.nanoTime() - start;
+			return move;
+		}
+
+		deadline = timeLimit > 0 ? start + timeLimit * 1000000L : 0;
+		long budget = playoutLimit > 0 ? playoutLimit : Long.MAX_VALUE;
+		int workers = Math.max(1, threads);
+		long perWorker = budget == Long.MAX_VALUE ? budget : (budget + workers - 1) / workers;
+
+		// Prepare one tree per thread, or one shared tree
+		int treeCount = treeParallel ? 1 : workers;
+		if(trees == null || trees.length != treeCount || trees[0].capacity() != Math.max(2, maxNodes)) {
+			trees = new Tree[treeCount];
+			for(int i = 0; i < treeCount; i++) {
+				trees[i] = new Tree(Math.max(2, maxNodes));
+			}
+		}
+		for(Tree tree : trees) {
+			tree.reset();
+			expand(tree, 0, player, opponent);
+		}
+
+		// Run the helper threads and search on this thread too
+		Future<?>[] running = new Future<?>[workers - 1];
+		long[] playouts = new long[workers];
+		for(int i = 1; i < workers; i++) {
+			Tree tree = trees[treeParallel ? 0 : i];
+			int worker = i;
+			running[i - 1] = getPool(workers - 1).submit(() -> {
+				playouts[worker] = search(tree, player, opponent, perWorker);
+			});
+		}
+		playouts[0] = search(trees[0], player, opponent, perWorker);
+		// Wait for every helper, as they share the trees, then report the first that failed
+		boolean interrupted = false;
+		Throwable failure = null;
+		for(int i = 0; i < running.length; i++) {
+			try {
+				running[i].get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				i--;
+			} catch (ExecutionException e) {
+				if(failure == null) {
+					failure = e.getCause();
+				}
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if(failure != null) {
+			throw new IllegalStateException("A helper search failed", failure);
+		}
+
+		// Add up the visits of every root move over all trees
+		int[] visits = new int[64];
+		long[] wins = new long[64];
+		for(Tree tree : trees) {
+			int first = tree.firstChild[0];
+			for(int child = first; child < first + tree.childCount[0]; child++) {
+				visits[tree.move[child]] += tree.visits[child];
+				wins[tree.move[child]] += tree.wins[child];
+			}
+			treeSize += Math.min(tree.size.get(), tree.capacity());
+		}
+		int best = Long.numberOfTrailingZeros(moves);
+		for(long rest = moves; rest != 0; rest &= rest - 1) {
+			int square = Long.numberOfTrailingZeros(rest);
+			if(visits[square] > visits[best]) {
+				best = square;
+			}
+		}
+
+		move[0] = Bitboard.x(best);
+		move[1] = Bitboard.y(best);
+		winRate = visits[best] > 0 ? wins[best] / (2.0 * visits[best]) : 0.5;
+		for(long count : playouts) {
+			nodes += count;
+		}
+		time = System.nanoTime() - start;
+		return move;
+	}
+
+	/**
+	 * Play random games from the root of a tree, growing the tree as it goes
+	 * @param tree The tree to search (possibly shared with other threads)
+	 * @param player The pieces of the colour to move at the root
+	 * @param opponent The pieces of the other colour
+	 * @param budget The number of random games to play
+	 * @return The number of random games played
+	 */
+	private long search(Tree tree, long player, long opponent, long budget) {
+		int[] path = new int[MAX_PATH];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long played = 0;
+
+		while(played < budget) {
+			// Check the clock every 16 games
+			if((played & 15) == 0 && deadline != 0 && System.nanoTime() >= deadline) {
+				break;
+			}
+
+			// Selection: walk down the tree to a leaf, counting the visits on the way down
+			long p = player;
+			long o = opponent;
+			int node = 0;
+			int length = 0;
+			INTS.getAndAdd(tree.visits, 0, 1);
+			path[length++] = 0;
+			while((int) INTS.getAcquire(tree.state, node) == EXPANDED && tree.childCount[node] > 0) {
+				node = select(tree, node);
+				long moved = play(tree.move[node], p, o);
+				p = o & ~moved;
+				o = moved;
+				path[length++] = node;
+			}
+
+			// Expansion: grow the tree below a leaf that has been visited before and step into one of its new children
+			if(tree.visits[node] >= EXPANSION_VISITS && expand(tree, node, p, o) && tree.childCount[node] > 0) {
+				node = select(tree, node);
+				long moved = play(tree.move[node], p, o);
+				p = o & ~moved;
+				o = moved;
+				path[length++] = node;
+			}
+
+			// Simulation: finish the game with random moves
+			int difference = playout(p, o, random);
+
+			// Backpropagation: the leaf was reached after length - 1 moves, so an even length means the root colour is not to move
+			if((length & 1) == 0) {
+				difference = -difference;
+			}
+			int result = difference > 0 ? 2 : difference == 0 ? 1 : 0;
+			for(int i = 0; i < length; i++) {
+				// Nodes at odd depths were reached by a move of the root colour, the others by a move of the opponent
+				INTS.getAndAdd(tree.wins, path[i], (i & 1) == 1 ? result : 2 - result);
+			}
+			played++;
+		}
+		return played;
+	}
+
+	/**
+	 * Pick the child with the highest UCT value and count the visit
+	 * @param tree The tree
+	 * @param node The expanded node
+	 * @return The chosen child
+	 */
+	private int select(Tree tree, int node) {
+		int first = tree.firstChild[node];
+		int last = first + tree.childCount[node];
+		double logVisits = Math.log(Math.max(1, tree.visits[node]));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int child = first; child < last; child++) {
+			int visits = tree.visits[child];
+
+			// Visit every child once before comparing them
+			if(visits == 0) {
+				best = child;
+				break;
+			}
+			double value = tree.wins[child] / (2.0 * visits) + exploration * Math.sqrt(logVisits / visits);
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		INTS.getAndAdd(tree.visits, best, 1);
+		return best;
+	}
+
+	/**
+	 * Add the children of a leaf to the tree. Only one thread expands a node; the others keep treating it as a leaf meanwhile.
+	 * @param tree The tree
+	 * @param node The leaf to expand
+	 * @param player The pieces of the colour to move in the leaf
+	 * @param opponent The pieces of the other colour
+	 * @return Whether this thread expanded the node (false if another thread does, or the tree is full)
+	 */
+	private static boolean expand(Tree tree, int node, long player, long opponent) {
+		if(!INTS.compareAndSet(tree.state, node, UNEXPANDED, EXPANDING)) {
+			return false;
+		}
+
+		// A player without a valid move passes; a game in which neither player can move has no children
+		long moves = Bitboard.legalMoves(player, opponent);
+		int count = moves != 0 ? Long.bitCount(moves) : Bitboard.legalMoves(opponent, player) != 0 ? 1 : 0;
+		int first = count > 0 ? tree.allocate(count) : 0;
+		if(first < 0) {
+			INTS.setRelease(tree.state, node, UNEXPANDED);
+			return false;
+		}
+
+		for(int child = first; child < first + count; child++) {
+			tree.move[child] = (byte) (moves != 0 ? Long.numberOfTrailingZeros(moves) : PASS);
+			moves &= moves - 1;
+			tree.firstChild[child] = 0;
+			tree.childCount[child] = 0;
+			tree.visits[child] = 0;
+			tree.wins[child] = 0;
+			tree.state[child] = UNEXPANDED;
+		}
+		tree.firstChild[node] = first;
+		tree.childCount[node] = (byte) count;
+		INTS.setRelease(tree.state, node, EXPANDED);
+		return true;
+	}
+
+	/**
+	 * Play a move on bitboards
+	 * @param square The field index of the move, or PASS
+	 * @param player The pieces of the colour to move
+	 * @param opponent The pieces of the other colour
+	 * @return The pieces of the colour that moved after the move (the opponent loses exactly the flipped pieces)
+	 */
+	private static long play(int square, long player, long opponent) {
+		if(square == PASS) {
+			return player;
+		}
+		return player | Bitboard.flips(square, player, opponent) | (1L << square);
+	}
+
+	/**
+	 * Finish a game with random valid moves
+	 * @param player The pieces of the colour to move
+	 * @param opponent The pieces of the other colour
+	 * @param random The random number generator of this thread
+	 * @return The final difference in pieces from the point of view of the colour to move at the start
+	 */
+	private static int playout(long player, long opponent, ThreadLocalRandom random) {
+		boolean swapped = false;
+		while(true) {
+			long moves = Bitboard.legalMoves(player, opponent);
+			if(moves == 0) {
+				if(Bitboard.legalMoves(opponent, player) == 0) {
+					break;
+				}
+			}
+			else {
+				// Pick a random valid move
+				for(int i = random.nextInt(Long.bitCount(moves)); i > 0; i--) {
+					moves &= moves - 1;
+				}
+				int square = Long.numberOfTrailingZeros(moves);
+				long flips = Bitboard.flips(square, player, opponent);
+				player |= flips | (1L << square);
+				opponent &= ~flips;
+			}
+			long swap = player;
+			player = opponent;
+			opponent = swap;
+			swapped = !swapped;
+		}
+		int difference = Long.bitCount(player) - Long.bitCount(opponent);
+		return swapped ? -difference : difference;
+	}
+
+	/**
+	 * Get the thread pool of the helper threads, creating it if the number of threads changed
+	 * @param size The number of helper threads
+	 * @return The pool
+	 */
+	private ExecutorService getPool(int size) {
+		if(pool == null || ((ThreadPoolExecutor) pool).getCorePoolSize() != size) {
+			if(pool != null) {
+				pool.shutdownNow();
+			}
+			pool = Executors.newFixedThreadPool(size, runnable -> {
+				Thread thread = new Thread(runnable, "MctsEngine helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * @return the playoutLimit (0 for no limit)
+	 */
+	public long getPlayoutLimit() {
+		return playoutLimit;
+	}
+
+	/**
+	 * @param playoutLimit the number of random games per move to set (0 for no limit, then a time limit must be set)
+	 */
+	public void setPlayoutLimit(long playoutLimit) {
+		this.playoutLimit = playoutLimit;
+	}
+
+	/**
+	 * @return the timeLimit in milliseconds (0 for no limit)
+	 */
+	@Override
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * @param timeLimit the time limit per move in milliseconds to set (0 for no limit)
+	 */
+	@Override
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of threads. With more than one thread the search runs root parallel or tree parallel.
+	 */
+	@Override
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @return whether the threads share one tree (otherwise every thread builds its own)
+	 */
+	public boolean isTreeParallel() {
+		return treeParallel;
+	}
+
+	/**
+	 * @param treeParallel whether the threads share one tree (true) or build one tree each (false) to set
+	 */
+	public void setTreeParallel(boolean treeParallel) {
+		this.treeParallel = treeParallel;
+	}
+
+	/**
+	 * @return the maximum number of nodes per tree
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * @param maxNodes the maximum number of nodes per tree to set
+	 */
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * @return the exploration constant of the UCT formula
+	 */
+	public double getExploration() {
+		return exploration;
+	}
+
+	/**
+	 * @param exploration the exploration constant of the UCT formula to set (higher values try weaker looking moves more often)
+	 */
+	public void setExploration(double exploration) {
+		this.exploration = exploration;
+	}
+
+	/**
+	 * @return The share of the random games won (draws counting half) after the move returned by the last search
+	 */
+	public double getWinRate() {
+		return winRate;
+	}
+
+	/**
+	 * @return The number of nodes in the trees of the last search
+	 */
+	public int getTreeSize() {
+		return treeSize;
+	}
+
+	/**
+	 * @return the number of random games played during the last search
+	 */
+	@Override
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of random games played per second
+	 */
+	@Override
+	public double getNodesPerSecond() {
+		return time > 0 ? nodes * 1e9 / time : 0;
+	}
+
+	/**
+	 * Class representing the arena of a search tree. Node 0 is the root.
+	 */
+	private static final class Tree {
+
+		// Node data, indexed by node number
+		private final int[] firstChild;
+		private final byte[] childCount;
+		private final byte[] move;
+		private final int[] visits;
+		private final int[] wins;
+		private final int[] state;
+
+		/**
+		 * The number of nodes allocated
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+
+		/**
+		 * Constructor for an empty Tree
+		 * @param pCapacity The maximum number of nodes
+		 */
+		private Tree(int pCapacity) {
+			firstChild = new int[pCapacity];
+			childCount = new byte[pCapacity];
+			move = new byte[pCapacity];
+			visits = new int[pCapacity];
+			wins = new int[pCapacity];
+			state = new int[pCapacity];
+		}
+
+		/**
+		 * Remove all nodes except an unexpanded root
+		 */
+		private void reset() {
+			size.set(1);
+			firstChild[0] = 0;
+			childCount[0] = 0;
+			move[0] = PASS;
+			visits[0] = 0;
+			wins[0] = 0;
+			state[0] = UNEXPANDED;
+		}
+
+		/**
+		 * Allocate a block of consecutive nodes
+		 * @param count The number of nodes
+		 * @return The first node of the block, or -1 if the tree is full
+		 */
+		private int allocate(int count) {
+			while(true) {
+				int first = size.get();
+				if(first + count > capacity()) {
+					return -1;
+				}
+				if(size.compareAndSet(first, first + count)) {
+					return first;
+				}
+			}
+		}
+
+		/**
+		 * @return The maximum number of nodes
+		 */
+		private int capacity() {
+			return visits.length;
+		}
+
+	}
+
+}
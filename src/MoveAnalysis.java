@@ -0,0 +1,120 @@
+/**
+ * Class representing the result of analysing one move of a position: its score, the depth it was searched to
+ * and the principal variation (the line of play expected from it, starting with the move itself).
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class MoveAnalysis implements java.io.Serializable {
+
+	/**
+	 * Objects of this class may be stored using Serialisation
+	 */
+	private static final long serialVersionUID = -4415036742218841093L;
+
+	// Declare fields of object
+	private final int square;
+	private final int score;
+	private final int depth;
+	private final boolean solved;
+	private final int[] principalVariation;
+	private final long nodes;
+
+	/**
+	 * Constructor for the result of a move
+	 * @param pSquare The field index of the move
+	 * @param pScore The score of the move from the point of view of the colour playing it
+	 * @param pDepth The depth the move was searched to, counting the move itself
+	 * @param pSolved Whether the search reached the end of the game in every line, so the score is exact
+	 * @param pPrincipalVariation The field indices of the expected line of play, starting with the move (Grid.PASS for a pass)
+	 * @param pNodes The number of positions visited to analyse the move
+	 */
+	public MoveAnalysis(int pSquare, int pScore, int pDepth, boolean pSolved, int[] pPrincipalVariation, long pNodes) {
+		square = pSquare;
+		score = pScore;
+		depth = pDepth;
+		solved = pSolved;
+		principalVariation = pPrincipalVariation.clone();
+		nodes = pNodes;
+	}
+
+	/**
+	 * @return the coordinates of the move
+	 */
+	public int[] getMove() {
+		return new int[] {Bitboard.x(square), Bitboard.y(square)};
+	}
+
+	/**
+	 * @return the field index of the move
+	 */
+	public int getSquare() {
+		return square;
+	}
+
+	/**
+	 * @return the score from the point of view of the colour playing the move, in the units of the engine that analysed it
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the depth the move was searched to, counting the move itself
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return whether the search reached the end of the game in every line, so the score is exact
+	 */
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/**
+	 * @return the coordinates of the moves of the principal variation, starting with the move ({-1,-1} for a pass)
+	 */
+	public int[][] getPrincipalVariation() {
+		int[][] moves = new int[principalVariation.length][];
+		for(int i = 0; i < moves.length; i++) {
+			int field = principalVariation[i];
+			moves[i] = field == Grid.PASS ? new int[] {-1,-1} : new int[] {Bitboard.x(field), Bitboard.y(field)};
+		}
+		return moves;
+	}
+
+	/**
+	 * @return the number of positions visited to analyse the move
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Describe the result in the notation of the game, e.g. "C4 +12 (depth 9): C4 C3 D3"
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(name(square));
+		text.append(' ').append(score >= 0 ? "+" : "").append(score);
+		text.append(solved ? " (solved)" : " (depth " + depth + ")").append(':');
+		for(int field : principalVariation) {
+			text.append(' ').append(name(field));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @param field A field index or Grid.PASS
+	 * @return The name of the field as shown to the players (row letter and column number), or "pass"
+	 */
+	private static String name(int field) {
+		if(field == Grid.PASS) {
+			return "pass";
+		}
+		return Grid.LETTER_REFERENCE[Bitboard.y(field)] + (Bitboard.x(field) + 1);
+	}
+
+}
@@ -0,0 +1,438 @@
+// Import Java libraries
+import java.util.Arrays;
+
+/**
+ * Class representing the move ordering of an alpha-beta search, which decides how early the search finds the moves that cut off.
+ * <p>
+ * The moves of a position are searched in this order: the best move stored in the transposition table (HASH_MOVE),
+ * then the two moves that last caused a cutoff at the same ply (KILLERS), then all other moves sorted by their key.
+ * The key is the score of a shallow search of the move (SHALLOW_SEARCH, at remaining depths of at least SHALLOW_MIN_DEPTH,
+ * computed by the engine), or else the number of replies it leaves the opponent (MOBILITY), with the history of cutoffs
+ * of the field for the colour (HISTORY) breaking ties. Without any heuristic the moves are searched in field order.
+ * <p>
+ * Every move searched and every cutoff is counted by the heuristic that put the move in its place, so the cutoff rate of each
+ * heuristic can be compared (see OrderingBenchmark). An instance belongs to one search thread and uses no locks.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class MoveOrdering {
+
+	/**
+	 * The best move stored in the transposition table is searched first
+	 */
+	public static final int HASH_MOVE = 1;
+
+	/**
+	 * The last two moves causing a cutoff at the same ply are searched next
+	 */
+	public static final int KILLERS = 2;
+
+	/**
+	 * Moves are sorted by how often and how deep they caused cutoffs before
+	 */
+	public static final int HISTORY = 4;
+
+	/**
+	 * Moves are sorted by the number of replies they leave the opponent (fewest first, corners first)
+	 */
+	public static final int MOBILITY = 8;
+
+	/**
+	 * Moves are sorted by the score of a shallow search
+	 */
+	public static final int SHALLOW_SEARCH = 16;
+
+	/**
+	 * All heuristics
+	 */
+	public static final int ALL = HASH_MOVE | KILLERS | HISTORY | MOBILITY | SHALLOW_SEARCH;
+
+	/**
+	 * The heuristics used unless set otherwise. A shallow search costs more positions than it saves at the depths the game searches to.
+	 */
+	public static final int DEFAULT = HASH_MOVE | KILLERS | HISTORY | MOBILITY;
+
+	/**
+	 * Moves are searched in field order (used for counting moves no heuristic placed)
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Moves are only sorted by a shallow search at this remaining depth or deeper
+	 */
+	public static final int SHALLOW_MIN_DEPTH = 6;
+
+	/**
+	 * Moves are only sorted by mobility at this remaining depth or deeper
+	 */
+	public static final int MOBILITY_MIN_DEPTH = 2;
+
+	/**
+	 * The deepest ply the ordering keeps move lists for
+	 */
+	public static final int MAX_PLY = 64;
+
+	/**
+	 * The most moves a position can have
+	 */
+	private static final int MAX_MOVES = 64;
+
+	/**
+	 * The history is halved once an entry reaches this value, so recent cutoffs count more and keys cannot overflow
+	 */
+	private static final int HISTORY_MAX = 1 << 15;
+
+	/**
+	 * The key of the sorted moves is the primary key (shallow search score or mobility) times this plus the history
+	 */
+	private static final int PRIMARY_SCALE = HISTORY_MAX;
+
+	/**
+	 * Limit of the primary key, so keys cannot overflow
+	 */
+	private static final int PRIMARY_MAX = (1 << 15) - 1;
+
+	/**
+	 * The four corner fields
+	 */
+	private static final long CORNERS = 0x8100000000000081L;
+
+	/**
+	 * Keys of the hash move and the killers, above the key of any sorted move
+	 */
+	private static final int FIRST_KEY = Integer.MAX_VALUE;
+
+	// Counter indices: one per heuristic and one for moves in field order
+	private static final int COUNTERS = 6;
+	private static final int FIELD_ORDER = 5;
+
+	// Enabled heuristics
+	private final int heuristics;
+
+	// Move lists per ply: fields, keys and the counter index of the heuristic that placed the move
+	private final int[][] moves = new int[MAX_PLY][MAX_MOVES];
+	private final int[][] keys = new int[MAX_PLY][MAX_MOVES];
+	private final byte[][] sources = new byte[MAX_PLY][MAX_MOVES];
+
+	// Two killer slots per ply and the history per colour and field
+	private final int[] killers = new int[MAX_PLY * 2];
+	private final int[] history = new int[2 * 64];
+
+	// Counters
+	private final long[] searched = new long[COUNTERS];
+	private final long[] cutoffs = new long[COUNTERS];
+	private long cutNodes;
+	private long firstMoveCutoffs;
+
+	/**
+	 * Constructor for a MoveOrdering using the given heuristics
+	 * @param pHeuristics The heuristics to use (a combination of HASH_MOVE, KILLERS, HISTORY, MOBILITY and SHALLOW_SEARCH)
+	 */
+	public MoveOrdering(int pHeuristics) {
+		heuristics = pHeuristics & ALL;
+		Arrays.fill(killers, TranspositionTable.NO_MOVE);
+	}
+
+	/**
+	 * Check whether a heuristic is used
+	 * @param heuristic The heuristic
+	 * @return Whether it is enabled
+	 */
+	public boolean isEnabled(int heuristic) {
+		return (heuristics & heuristic) == heuristic;
+	}
+
+	/**
+	 * @return the enabled heuristics
+	 */
+	public int getHeuristics() {
+		return heuristics;
+	}
+
+	/**
+	 * Start a new search: the killers are cleared and the history is halved, so it favours the moves of the new position
+	 */
+	public void newSearch() {
+		Arrays.fill(killers, TranspositionTable.NO_MOVE);
+		ageHistory();
+	}
+
+	/**
+	 * Fill the move list of a ply with the valid moves and their keys. The moves are not sorted yet, see next().
+	 * @param ply The ply (distance from the root)
+	 * @param depth The remaining depth
+	 * @param colour The colour to move
+	 * @param player The pieces of the colour to move
+	 * @param opponent The pieces of the opponent
+	 * @param valid The valid moves
+	 * @param hashMove The best move stored in the transposition table, or NO_MOVE
+	 * @return The number of moves
+	 */
+	public int generate(int ply, int depth, int colour, long player, long opponent, long valid, int hashMove) {
+		int[] list = moves[ply];
+		int[] keyList = keys[ply];
+		byte[] sourceList = sources[ply];
+		int killer1 = (heuristics & KILLERS) != 0 ? killers[ply * 2] : TranspositionTable.NO_MOVE;
+		int killer2 = (heuristics & KILLERS) != 0 ? killers[ply * 2 + 1] : TranspositionTable.NO_MOVE;
+		if((heuristics & HASH_MOVE) == 0) {
+			hashMove = TranspositionTable.NO_MOVE;
+		}
+		boolean mobility = (heuristics & MOBILITY) != 0 && depth >= MOBILITY_MIN_DEPTH;
+		int sortedSource = sortedSource(depth, mobility);
+		int historyOffset = colour == 1 ? 64 : 0;
+
+		int count = 0;
+		for(; valid != 0; valid &= valid - 1) {
+			int square = Long.numberOfTrailingZeros(valid);
+			int key;
+			int source;
+			if(square == hashMove) {
+				key = FIRST_KEY;
+				source = index(HASH_MOVE);
+			}
+			else if(square == killer1) {
+				key = FIRST_KEY - 1;
+				source = index(KILLERS);
+			}
+			else if(square == killer2) {
+				key = FIRST_KEY - 2;
+				source = index(KILLERS);
+			}
+			else {
+				int primary = 0;
+				if(mobility) {
+					long flips = Bitboard.flips(square, player, opponent);
+					primary = -4 * Long.bitCount(Bitboard.legalMoves(opponent & ~flips, player | flips | (1L << square)));
+					if((CORNERS & (1L << square)) != 0) {
+						primary += 8;
+					}
+				}
+				key = primary * PRIMARY_SCALE;
+				if((heuristics & HISTORY) != 0) {
+					key += history[historyOffset + square];
+				}
+				source = sortedSource;
+			}
+			list[count] = square;
+			keyList[count] = key;
+			sourceList[count] = (byte) source;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Check whether the moves of a ply should be scored by a shallow search before they are searched
+	 * @param depth The remaining depth
+	 * @return Whether the engine should call setShallowScore() for the sorted moves
+	 */
+	public boolean useShallowSearch(int depth) {
+		return (heuristics & SHALLOW_SEARCH) != 0 && depth >= SHALLOW_MIN_DEPTH;
+	}
+
+	/**
+	 * @param depth The remaining depth
+	 * @return The depth of the shallow search used to sort the moves at this depth
+	 */
+	public static int shallowDepth(int depth) {
+		return Math.max(1, depth / 4);
+	}
+
+	/**
+	 * Check whether a move of a ply is sorted by its key (and not placed first as the hash move or a killer)
+	 * @param ply The ply
+	 * @param i The position of the move in the list
+	 * @return Whether the move is sorted
+	 */
+	public boolean isSorted(int ply, int i) {
+		return keys[ply][i] < FIRST_KEY - 2;
+	}
+
+	/**
+	 * Replace the primary key of a sorted move by the score of a shallow search, keeping the history as a tie-breaker
+	 * @param ply The ply
+	 * @param i The position of the move in the list
+	 * @param score The score of the shallow search from the point of view of the colour to move
+	 */
+	public void setShallowScore(int ply, int i, int score) {
+		int historyKey = Math.floorMod(keys[ply][i], PRIMARY_SCALE);
+		keys[ply][i] = Math.max(-PRIMARY_MAX, Math.min(PRIMARY_MAX, score)) * PRIMARY_SCALE + historyKey;
+		sources[ply][i] = (byte) index(SHALLOW_SEARCH);
+	}
+
+	/**
+	 * @param ply The ply
+	 * @param i The position of the move in the list
+	 * @return The field of the move (the list is not sorted by this, see next())
+	 */
+	public int getMove(int ply, int i) {
+		return moves[ply][i];
+	}
+
+	/**
+	 * Pick the move to search next: the move with the highest key among the moves not searched yet is swapped into place i.
+	 * Sorting one move at a time is cheaper than sorting the whole list, as most cutoffs happen at the first moves.
+	 * @param ply The ply
+	 * @param i The number of moves already searched
+	 * @param count The number of moves
+	 * @return The field of the move
+	 */
+	public int next(int ply, int i, int count) {
+		int[] list = moves[ply];
+		int[] keyList = keys[ply];
+		byte[] sourceList = sources[ply];
+		int best = i;
+		for(int j = i + 1; j < count; j++) {
+			if(keyList[j] > keyList[best]) {
+				best = j;
+			}
+		}
+		if(best != i) {
+			int square = list[best];
+			int key = keyList[best];
+			byte source = sourceList[best];
+			list[best] = list[i];
+			keyList[best] = keyList[i];
+			sourceList[best] = sourceList[i];
+			list[i] = square;
+			keyList[i] = key;
+			sourceList[i] = source;
+		}
+		searched[sourceList[i]]++;
+		return list[i];
+	}
+
+	/**
+	 * Record a cutoff: the move becomes the first killer of its ply and its history grows by the square of the remaining depth
+	 * @param ply The ply
+	 * @param i The position of the move in the list
+	 * @param depth The remaining depth
+	 * @param colour The colour that played the move
+	 */
+	public void cutoff(int ply, int i, int depth, int colour) {
+		int square = moves[ply][i];
+		cutoffs[sources[ply][i]]++;
+		cutNodes++;
+		if(i == 0) {
+			firstMoveCutoffs++;
+		}
+
+		if(killers[ply * 2] != square) {
+			killers[ply * 2 + 1] = killers[ply * 2];
+			killers[ply * 2] = square;
+		}
+
+		int entry = (colour == 1 ? 64 : 0) + square;
+		history[entry] += depth * depth;
+		if(history[entry] >= HISTORY_MAX) {
+			ageHistory();
+		}
+	}
+
+	/**
+	 * Halve every history entry
+	 */
+	private void ageHistory() {
+		for(int i = 0; i < history.length; i++) {
+			history[i] >>= 1;
+		}
+	}
+
+	/**
+	 * Get the counter index of the heuristic placing the sorted moves of a position
+	 * @param depth The remaining depth
+	 * @param mobility Whether the moves are sorted by mobility
+	 * @return The counter index
+	 */
+	private int sortedSource(int depth, boolean mobility) {
+		if(useShallowSearch(depth)) {
+			return index(SHALLOW_SEARCH);
+		}
+		if(mobility) {
+			return index(MOBILITY);
+		}
+		if((heuristics & HISTORY) != 0) {
+			return index(HISTORY);
+		}
+		return FIELD_ORDER;
+	}
+
+	/**
+	 * Get the counter index of a heuristic
+	 * @param heuristic One of the heuristics, or NONE for moves in field order
+	 * @return The counter index
+	 */
+	private static int index(int heuristic) {
+		if(heuristic == NONE) {
+			return FIELD_ORDER;
+		}
+		if(Integer.bitCount(heuristic) != 1 || (heuristic & ALL) == 0) {
+			throw new IllegalArgumentException("Not a single heuristic: " + heuristic);
+		}
+		return Integer.numberOfTrailingZeros(heuristic);
+	}
+
+	/**
+	 * Set all counters to 0
+	 */
+	public void resetCounters() {
+		Arrays.fill(searched, 0);
+		Arrays.fill(cutoffs, 0);
+		cutNodes = 0;
+		firstMoveCutoffs = 0;
+	}
+
+	/**
+	 * Add the counters of another ordering to these, e.g. those of the helper threads of a parallel search
+	 * @param other The other ordering
+	 */
+	public void addCounters(MoveOrdering other) {
+		for(int i = 0; i < COUNTERS; i++) {
+			searched[i] += other.searched[i];
+			cutoffs[i] += other.cutoffs[i];
+		}
+		cutNodes += other.cutNodes;
+		firstMoveCutoffs += other.firstMoveCutoffs;
+	}
+
+	/**
+	 * @param heuristic One of the heuristics, or NONE for moves in field order
+	 * @return The number of moves searched that were placed by the heuristic
+	 */
+	public long getSearched(int heuristic) {
+		return searched[index(heuristic)];
+	}
+
+	/**
+	 * @param heuristic One of the heuristics, or NONE for moves in field order
+	 * @return The number of cutoffs caused by moves placed by the heuristic
+	 */
+	public long getCutoffs(int heuristic) {
+		return cutoffs[index(heuristic)];
+	}
+
+	/**
+	 * @param heuristic One of the heuristics, or NONE for moves in field order
+	 * @return The share of the moves placed by the heuristic that caused a cutoff (0 if there were none)
+	 */
+	public double getCutoffRate(int heuristic) {
+		long count = getSearched(heuristic);
+		return count > 0 ? (double) getCutoffs(heuristic) / count : 0;
+	}
+
+	/**
+	 * @return The number of positions in which a move caused a cutoff
+	 */
+	public long getCutNodes() {
+		return cutNodes;
+	}
+
+	/**
+	 * @return The share of the cutoffs caused by the first move searched (0 if there were none)
+	 */
+	public double getFirstMoveCutoffRate() {
+		return cutNodes > 0 ? (double) firstMoveCutoffs / cutNodes : 0;
+	}
+
+}
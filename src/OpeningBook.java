@@ -0,0 +1,591 @@
+// Import Java libraries
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class representing an opening book: for positions near the start of the game, how often each move was played and how well it scored.
+ * <p>
+ * Positions are keyed by the hash of their canonical form (see Bitboard.canonical()), so games reaching a rotated or mirrored
+ * position share their statistics; moves are stored relative to the canonical form. The book is a file of entries
+ * sorted by key and is read through a memory mapped view, so a lookup is a binary search that creates no objects.
+ * The file (big-endian) is:
+ * <pre>
+ * long     "RVSB" and the format version
+ * long     number of archive games ingested
+ * int      number of plies of each game ingested
+ * int      unused
+ * long     number of entries, followed by the entries:
+ * long     position key (the lowest 7 bits hold the move), int games, int points (2 per win and 1 per draw of the player moving)
+ * </pre>
+ * Books are built from a game archive and from text transcripts in standard notation (e.g. "f5d6c3", passes are implicit),
+ * optionally followed by the final number of dark pieces minus light pieces; transcripts without a result must be complete games.
+ * Rebuilding merges the existing book with the archive games added since it was last built and any transcripts given, and replaces the file atomically.
+ * Usage: java OpeningBook [book] [archive directory] [transcripts...] (default ./book.bin and ./archive).
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class OpeningBook implements AutoCloseable {
+
+	/**
+	 * The book file used if none is specified
+	 */
+	public static final String DEFAULT_FILE = "./book.bin";
+
+	/**
+	 * The number of plies of each game ingested if none is specified
+	 */
+	public static final int DEFAULT_PLIES = 20;
+
+	/**
+	 * The number of games a move needs to have been played in to be chosen if none is specified
+	 */
+	public static final int DEFAULT_MIN_GAMES = 3;
+
+	/**
+	 * The first bytes of the book file ("RVSB" and the format version)
+	 */
+	private static final long HEADER = 0x5256534200000002L;
+
+	// Layout of the file
+	private static final int HEADER_SIZE = 32;
+	private static final int ENTRY_SIZE = 16;
+	private static final long MOVE_MASK = 0x7f;
+
+	// The default book, opened on first use
+	private static OpeningBook defaultBook;
+	private static boolean defaultOpened;
+
+	// Declare fields of object
+	private final FileChannel channel;
+	private final MappedByteBuffer view;
+	private final long archiveGames;
+	private final int plies;
+	private final int entries;
+	private int minGames = DEFAULT_MIN_GAMES;
+
+	/**
+	 * Constructor opening a book file
+	 * @param file The book file
+	 * @throws IOException If the file cannot be read or is not an opening book
+	 */
+	public OpeningBook(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("The book is too large to be mapped");
+			}
+			view = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if(size < HEADER_SIZE || (view.getLong(0) >>> 32) != (HEADER >>> 32)) {
+				throw new IOException("This is not an opening book");
+			}
+			if(view.getLong(0) != HEADER) {
+				throw new IOException("The opening book was built with another format version and must be built again");
+			}
+			archiveGames = view.getLong(8);
+			plies = view.getInt(16);
+			long count = view.getLong(24);
+			if(count < 0 || HEADER_SIZE + count * ENTRY_SIZE != size) {
+				throw new IOException("The opening book is incomplete");
+			}
+			entries = (int) count;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the book in the default file, opening it on first use
+	 * @return The book, or null if there is no usable book
+	 */
+	public static synchronized OpeningBook getDefault() {
+		if(!defaultOpened) {
+			defaultOpened = true;
+			File file = new File(DEFAULT_FILE);
+			if(file.exists()) {
+				try {
+					defaultBook = new OpeningBook(file);
+				} catch (IOException e) {
+					// Without a book the computer simply searches every move
+					defaultBook = null;
+				}
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 * Find the book move of a position: the move with the best score among those played often enough
+	 * @param grid The position
+	 * @param colour The colour to move
+	 * @return The move as {x, y}, or null if the position is not in the book
+	 */
+	public int[] findMove(Grid grid, int colour) {
+		long player = grid.getPieces(colour);
+		long opponent = grid.getPieces(-colour);
+		int symmetry = Bitboard.canonical(player, opponent);
+		long key = positionKey(player, opponent, symmetry);
+
+		int best = -1;
+		double bestScore = -1;
+		for(int i = lowerBound(key); i < entries; i++) {
+			int position = HEADER_SIZE + i * ENTRY_SIZE;
+			long entry = view.getLong(position);
+			if((entry & ~MOVE_MASK) != key) {
+				break;
+			}
+			int games = view.getInt(position + 8);
+			if(games < minGames) {
+				continue;
+			}
+
+			// Estimate the score with one win and one loss added, so moves played rarely are not overrated
+			double score = (view.getInt(position + 12) + 2.0) / (2.0 * games + 4.0);
+			if(score > bestScore) {
+				bestScore = score;
+				best = (int) (entry & MOVE_MASK);
+			}
+		}
+		if(best < 0) {
+			return null;
+		}
+
+		// Map the move back to the board; a hash collision could suggest a move that is not valid here
+		int square = Bitboard.inverseSquare(best, symmetry);
+		if((Bitboard.legalMoves(player, opponent) & (1L << square)) == 0) {
+			return null;
+		}
+		return new int[] {Bitboard.x(square), Bitboard.y(square)};
+	}
+
+	/**
+	 * Find the first entry with a key not less than the given one
+	 * @param key The key
+	 * @return The index of the entry (the number of entries if there is none)
+	 */
+	private int lowerBound(long key) {
+		int low = 0;
+		int high = entries;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(view.getLong(HEADER_SIZE + middle * ENTRY_SIZE) < key) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compute the key of a position, the hash of its canonical form (see Bitboard.canonical()) with the bits of the move cleared
+	 * @param player The pieces of the player to move
+	 * @param opponent The pieces of the opponent
+	 * @param symmetry The symmetry mapping the position to its canonical form
+	 * @return The key
+	 */
+	private static long positionKey(long player, long opponent, int symmetry) {
+		return Grid.hash(Bitboard.transform(player, symmetry), Bitboard.transform(opponent, symmetry), 1) & ~MOVE_MASK;
+	}
+
+	/**
+	 * Compute the entry key of a move in a position. In a symmetric position equivalent moves share the same key.
+	 * @param player The pieces of the player to move
+	 * @param opponent The pieces of the opponent
+	 * @param square The field of the move
+	 * @return The key
+	 */
+	private static long moveKey(long player, long opponent, int square) {
+		int symmetry = Bitboard.canonical(player, opponent);
+		long canonicalPlayer = Bitboard.transform(player, symmetry);
+		long canonicalOpponent = Bitboard.transform(opponent, symmetry);
+		int move = Bitboard.transformSquare(square, symmetry);
+
+		// Of the symmetries leading to the same canonical form, use the one mapping the move to the lowest field
+		for(int other = symmetry + 1; other < Bitboard.SYMMETRIES; other++) {
+			if(Bitboard.transform(player, other) == canonicalPlayer && Bitboard.transform(opponent, other) == canonicalOpponent) {
+				move = Math.min(move, Bitboard.transformSquare(square, other));
+			}
+		}
+		return positionKey(player, opponent, symmetry) | move;
+	}
+
+	/**
+	 * @return the number of entries (position and move pairs)
+	 */
+	public int size() {
+		return entries;
+	}
+
+	/**
+	 * @return the number of archive games ingested
+	 */
+	public long getArchiveGames() {
+		return archiveGames;
+	}
+
+	/**
+	 * @return the number of plies of each game ingested
+	 */
+	public int getPlies() {
+		return plies;
+	}
+
+	/**
+	 * @return the number of games a move needs to have been played in to be chosen
+	 */
+	public int getMinGames() {
+		return minGames;
+	}
+
+	/**
+	 * @param minGames the number of games a move needs to have been played in to be chosen to set
+	 */
+	public void setMinGames(int minGames) {
+		this.minGames = minGames;
+	}
+
+	/**
+	 * Close the book file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Check whether a file is an opening book of another format version
+	 * @param file The file
+	 * @return Whether the file starts like an opening book but with another version
+	 * @throws IOException If the file cannot be read
+	 */
+	private static boolean isOtherVersion(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			if(file.length() < 8) {
+				return false;
+			}
+			long header = in.readLong();
+			return (header >>> 32) == (HEADER >>> 32) && header != HEADER;
+		}
+	}
+
+	/**
+	 * Build or update a book file. The existing book is merged with the archive games added since it was built and the transcripts.
+	 * A book of another format version is replaced by a new book, which ingests the archive from its first game.
+	 * The new book is written next to the old one and renamed over it, so readers never see a partly written book.
+	 * @param file The book file
+	 * @param archive The archive to ingest (may be null)
+	 * @param transcripts Files with one game per line (may be empty)
+	 * @param plies The number of plies of each game to ingest, used for a new book (an existing book keeps its own)
+	 * @return The number of games ingested
+	 * @throws IOException If a file cannot be read or the book cannot be written
+	 */
+	public static int build(File file, GameArchive archive, File[] transcripts, int plies) throws IOException {
+		long archiveGames = 0;
+		boolean merge = file.exists() && !isOtherVersion(file);
+		if(merge) {
+			try (OpeningBook old = new OpeningBook(file)) {
+				archiveGames = old.getArchiveGames();
+				plies = old.getPlies();
+			}
+		}
+
+		// Collect one sample per move played, sorted by the result for the player who made it
+		Samples samples = new Samples(plies);
+		int games = 0;
+		if(archive != null) {
+			for(int game = (int) Math.min(archiveGames, archive.size()); game < archive.size(); game++) {
+				samples.addArchiveGame(archive, game);
+				games++;
+			}
+			archiveGames = archive.size();
+		}
+		for(File transcript : transcripts) {
+			try (BufferedReader reader = new BufferedReader(new FileReader(transcript))) {
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(samples.addTranscript(line)) {
+						games++;
+					}
+				}
+			}
+		}
+		long[][] results = samples.sorted();
+
+		// Merge the old entries and the samples into the new file
+		File temporary = new File(file.getPath() + ".tmp");
+		long count = 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+				DataInputStream old = merge ? new DataInputStream(new BufferedInputStream(new FileInputStream(file))) : null) {
+			out.writeLong(HEADER);
+			out.writeLong(archiveGames);
+			out.writeInt(plies);
+			out.writeInt(0);
+			out.writeLong(0);
+
+			long oldRemaining = 0;
+			if(old != null) {
+				old.skipNBytes(24);
+				oldRemaining = old.readLong();
+			}
+			long oldKey = 0;
+			int oldGames = 0;
+			int oldPoints = 0;
+			boolean oldValid = false;
+			int[] next = new int[3];
+			while(true) {
+				if(!oldValid && oldRemaining > 0) {
+					oldKey = old.readLong();
+					oldGames = old.readInt();
+					oldPoints = old.readInt();
+					oldValid = true;
+					oldRemaining--;
+				}
+
+				// The smallest key of all four sorted inputs is written next
+				boolean found = oldValid;
+				long key = oldKey;
+				for(int result = 0; result < 3; result++) {
+					if(next[result] < results[result].length && (!found || results[result][next[result]] < key)) {
+						key = results[result][next[result]];
+						found = true;
+					}
+				}
+				if(!found) {
+					break;
+				}
+
+				int entryGames = 0;
+				int entryPoints = 0;
+				if(oldValid && oldKey == key) {
+					entryGames = oldGames;
+					entryPoints = oldPoints;
+					oldValid = false;
+				}
+				for(int result = 0; result < 3; result++) {
+					while(next[result] < results[result].length && results[result][next[result]] == key) {
+						entryGames++;
+						entryPoints += result;
+						next[result]++;
+					}
+				}
+				out.writeLong(key);
+				out.writeInt(entryGames);
+				out.writeInt(entryPoints);
+				count++;
+			}
+		}
+
+		// Fill in the number of entries and replace the old book
+		try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(8).putLong(0, count), 24);
+			channel.force(true);
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return games;
+	}
+
+	/**
+	 * Class collecting the keys of the moves played in the games ingested, one list per result (loss, draw, win)
+	 */
+	private static final class Samples {
+
+		// Declare fields of object
+		private final int plies;
+		private final long[][] keys = new long[3][1024];
+		private final int[] sizes = new int[3];
+
+		/**
+		 * Constructor for an empty collection
+		 * @param pPlies The number of plies of each game to ingest
+		 */
+		Samples(int pPlies) {
+			plies = pPlies;
+		}
+
+		/**
+		 * Add the opening of an archived game
+		 * @param archive The archive
+		 * @param game The number of the game
+		 */
+		void addArchiveGame(GameArchive archive, int game) {
+			long light = archive.getStartPieces(game, 1);
+			long dark = archive.getStartPieces(game, -1);
+			int difference = archive.getResult(game, 1) - archive.getResult(game, -1);
+			int moves = Math.min(plies, archive.getMoveCount(game));
+			for(int i = 0; i < moves; i++) {
+				int move = archive.getMove(game, i);
+				int square = SaveFormat.decodeSquare(move);
+				if(square == Grid.PASS) {
+					continue;
+				}
+				int colour = SaveFormat.decodeColour(move);
+				long player = colour == 1 ? light : dark;
+				long opponent = colour == 1 ? dark : light;
+				add(moveKey(player, opponent, square), Integer.signum(difference * colour) + 1);
+
+				long flipped = Bitboard.flips(square, player, opponent);
+				player |= flipped | (1L << square);
+				opponent &= ~flipped;
+				light = colour == 1 ? player : opponent;
+				dark = colour == 1 ? opponent : player;
+			}
+		}
+
+		/**
+		 * Add the opening of a game in standard notation, starting from the Othello start position with dark to move
+		 * @param line The moves, optionally followed by the final number of dark pieces minus light pieces
+		 * @return Whether the game was added (empty lines, comments starting with # and invalid games are skipped)
+		 */
+		boolean addTranscript(String line) {
+			String[] parts = line.trim().split("\\s+");
+			if(parts[0].isEmpty() || parts[0].startsWith("#") || parts[0].length() % 2 != 0) {
+				return false;
+			}
+
+			Grid grid = new Grid();
+			grid.initialiseOthello();
+			long player = grid.getPieces(-1);
+			long opponent = grid.getPieces(1);
+			int colour = -1;
+			int count = parts[0].length() / 2;
+			int[] squares = new int[count];
+			int[] colours = new int[count];
+			for(int i = 0; i < count; i++) {
+				int x = Character.toLowerCase(parts[0].charAt(2 * i)) - 'a';
+				int y = parts[0].charAt(2 * i + 1) - '1';
+				if(x < 0 || x > 7 || y < 0 || y > 7) {
+					return false;
+				}
+
+				// A player without a valid move passes
+				if(Bitboard.legalMoves(player, opponent) == 0) {
+					long swap = player;
+					player = opponent;
+					opponent = swap;
+					colour = -colour;
+				}
+				int square = Bitboard.square(x, y);
+				if((Bitboard.legalMoves(player, opponent) & (1L << square)) == 0) {
+					return false;
+				}
+				squares[i] = square;
+				colours[i] = colour;
+
+				long flipped = Bitboard.flips(square, player, opponent);
+				long moved = player | flipped | (1L << square);
+				player = opponent & ~flipped;
+				opponent = moved;
+				colour = -colour;
+			}
+
+			// Use the given result, or count the pieces of a finished game
+			int difference;
+			if(parts.length > 1) {
+				try {
+					difference = Integer.parseInt(parts[1]);
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+			else if(Bitboard.legalMoves(player, opponent) == 0 && Bitboard.legalMoves(opponent, player) == 0) {
+				difference = (Long.bitCount(player) - Long.bitCount(opponent)) * -colour;
+			}
+			else {
+				return false;
+			}
+
+			// Replay the moves to record their positions
+			player = grid.getPieces(-1);
+			opponent = grid.getPieces(1);
+			colour = -1;
+			for(int i = 0; i < Math.min(plies, count); i++) {
+				if(colours[i] != colour) {
+					long swap = player;
+					player = opponent;
+					opponent = swap;
+					colour = -colour;
+				}
+				add(moveKey(player, opponent, squares[i]), Integer.signum(-difference * colour) + 1);
+				long flipped = Bitboard.flips(squares[i], player, opponent);
+				long moved = player | flipped | (1L << squares[i]);
+				player = opponent & ~flipped;
+				opponent = moved;
+				colour = -colour;
+			}
+			return true;
+		}
+
+		/**
+		 * Add one sample
+		 * @param key The key of the position and move
+		 * @param result The result for the player moving (0 loss, 1 draw, 2 win)
+		 */
+		private void add(long key, int result) {
+			if(sizes[result] == keys[result].length) {
+				keys[result] = Arrays.copyOf(keys[result], keys[result].length * 2);
+			}
+			keys[result][sizes[result]++] = key;
+		}
+
+		/**
+		 * @return The keys of each result, sorted
+		 */
+		long[][] sorted() {
+			long[][] sorted = new long[3][];
+			for(int result = 0; result < 3; result++) {
+				sorted[result] = Arrays.copyOf(keys[result], sizes[result]);
+				Arrays.sort(sorted[result]);
+			}
+			return sorted;
+		}
+	}
+
+	/**
+	 * Main method building or updating a book
+	 * @param args The book file, the archive directory and any number of transcript files (all optional)
+	 * @throws IOException If a file cannot be read or the book cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : DEFAULT_FILE);
+		File directory = new File(args.length > 1 ? args[1] : GameArchive.DEFAULT_DIRECTORY);
+		File[] transcripts = new File[Math.max(0, args.length - 2)];
+		for(int i = 0; i < transcripts.length; i++) {
+			transcripts[i] = new File(args[i + 2]);
+		}
+
+		long start = System.nanoTime();
+		int games;
+		if(new File(directory, "games.dat").exists()) {
+			try (GameArchive archive = new GameArchive(directory)) {
+				games = build(file, archive, transcripts, DEFAULT_PLIES);
+			}
+		}
+		else {
+			games = build(file, null, transcripts, DEFAULT_PLIES);
+		}
+		try (OpeningBook book = new OpeningBook(file)) {
+			System.out.printf("Added %d games in %.1f s, the book has %d entries from %d archive games%n",
+					games, (System.nanoTime() - start) / 1e9, book.size(), book.getArchiveGames());
+		}
+	}
+
+}
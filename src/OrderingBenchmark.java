@@ -0,0 +1,108 @@
+/**
+ * Class representing a command line benchmark of the move ordering heuristics.
+ * <p>
+ * Searches the midgame positions of SearchBenchmark to a fixed depth, adding one heuristic of MoveOrdering at a time,
+ * and prints the nodes, the time and the share of cutoffs caused by the first move for each combination.
+ * For the last combination the cutoff rate of every heuristic is printed as well.
+ * Usage: java OrderingBenchmark [depth] [positions]
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class OrderingBenchmark {
+
+	/**
+	 * The combinations of heuristics measured, each adding one heuristic
+	 */
+	private static final int[] COMBINATIONS = {
+		MoveOrdering.NONE,
+		MoveOrdering.HASH_MOVE,
+		MoveOrdering.HASH_MOVE | MoveOrdering.KILLERS,
+		MoveOrdering.HASH_MOVE | MoveOrdering.KILLERS | MoveOrdering.HISTORY,
+		MoveOrdering.HASH_MOVE | MoveOrdering.KILLERS | MoveOrdering.HISTORY | MoveOrdering.MOBILITY,
+		MoveOrdering.ALL
+	};
+
+	/**
+	 * The names of the heuristics, in the order of their flags
+	 */
+	private static final String[] NAMES = {"Hash move", "Killers", "History", "Mobility", "Shallow search"};
+
+	/**
+	 * Main method running the benchmark
+	 * @param args Search depth and number of positions (both optional)
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		Grid[] positions = SearchBenchmark.positions(count, 20);
+		System.out.printf("Depth %d, %d positions%n", depth, count);
+		System.out.printf("%-52s %14s %12s %12s%n", "Heuristics", "Nodes", "Time (ms)", "First cut");
+
+		// Warm up the JIT compiler before measuring
+		search(positions, Math.min(depth, 6), MoveOrdering.ALL);
+
+		MoveOrdering last = null;
+		for(int heuristics : COMBINATIONS) {
+			long start = System.nanoTime();
+			long[] nodes = new long[1];
+			last = search(positions, depth, heuristics, nodes);
+			double millis = (System.nanoTime() - start) / 1e6;
+			System.out.printf("%-52s %14d %12.1f %11.1f%%%n", describe(heuristics), nodes[0], millis, 100 * last.getFirstMoveCutoffRate());
+		}
+
+		System.out.println();
+		System.out.printf("%-16s %14s %14s %12s%n", "Placed by", "Searched", "Cutoffs", "Cutoff rate");
+		for(int i = 0; i < NAMES.length; i++) {
+			int heuristic = 1 << i;
+			System.out.printf("%-16s %14d %14d %11.1f%%%n", NAMES[i], last.getSearched(heuristic), last.getCutoffs(heuristic),
+					100 * last.getCutoffRate(heuristic));
+		}
+	}
+
+	/**
+	 * Search every position to a fixed depth with one engine
+	 * @param positions The positions to search
+	 * @param depth The depth to search to
+	 * @param heuristics The move ordering heuristics
+	 * @return The move ordering of the engine with its counters
+	 */
+	private static MoveOrdering search(Grid[] positions, int depth, int heuristics) {
+		return search(positions, depth, heuristics, new long[1]);
+	}
+
+	/**
+	 * Search every position to a fixed depth with one engine
+	 * @param positions The positions to search
+	 * @param depth The depth to search to
+	 * @param heuristics The move ordering heuristics
+	 * @param nodes Receives the total number of nodes
+	 * @return The move ordering of the engine with its counters
+	 */
+	private static MoveOrdering search(Grid[] positions, int depth, int heuristics, long[] nodes) {
+		AlphaBetaEngine engine = new AlphaBetaEngine(depth, 0, 64);
+		engine.setHeuristics(heuristics);
+		for(Grid grid : positions) {
+			engine.getTranspositionTable().clear();
+			engine.findBestMove(grid, grid.getSideToMove());
+			nodes[0] += engine.getNodes();
+		}
+		return engine.getMoveOrdering();
+	}
+
+	/**
+	 * @param heuristics A combination of heuristics
+	 * @return The names of the heuristics
+	 */
+	private static String describe(int heuristics) {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < NAMES.length; i++) {
+			if((heuristics & (1 << i)) != 0) {
+				text.append(text.length() > 0 ? ", " : "").append(NAMES[i]);
+			}
+		}
+		return text.length() > 0 ? text.toString() : "None (field order)";
+	}
+
+}
@@ -0,0 +1,342 @@
+// Import Java libraries
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class representing a table-driven evaluation of positions by patterns of fields: edges, corners, rows and diagonals.
+ * <p>
+ * Every pattern is read as a base-3 number (0 empty, 1 light, 2 dark per field, the first field of the pattern being the lowest digit)
+ * and looked up in the weight table of its group; the groups are the same pattern in all its rotations and reflections.
+ * The score is the sum of the weights of all patterns plus a bias, and estimates the final number of light pieces minus
+ * dark pieces in 1/SCALE pieces. The game is divided into phases by the number of pieces, each with its own weights.
+ * <p>
+ * The grid keeps the codes of all patterns up to date when moves are made and taken back (see Grid.getPatternCodes()),
+ * so an evaluation is a fixed number of table lookups. Late in the game the score is limited to the final results still possible
+ * given the stable discs of both sides. The weights are fitted by PatternFitter and stored in a resource
+ * file (GZIP compressed, big-endian): int "RVSP", int format version, int number of phases, int weights per phase, then the weights as shorts.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class PatternEvaluator {
+
+	/**
+	 * The name of the weight file on the classpath
+	 */
+	public static final String RESOURCE = "/patterns.bin";
+
+	/**
+	 * Weights and scores are given in 1/SCALE pieces
+	 */
+	public static final int SCALE = 16;
+
+	/**
+	 * The number of game phases with their own weights
+	 */
+	public static final int PHASES = 6;
+
+	/**
+	 * From this number of pieces on the score is kept within the bounds given by the stable discs (see Stability)
+	 */
+	public static final int STABILITY_PIECES = 40;
+
+	/**
+	 * The first four bytes of the weight file ("RVSP")
+	 */
+	private static final int MAGIC = 0x52565350;
+
+	/**
+	 * The version of the weight file written by this class
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The fields of the pattern groups as {x, y} in one orientation; the other orientations are generated from the symmetries of the board
+	 */
+	private static final int[][][] GROUPS = {
+		// Edge
+		{{0,0},{1,0},{2,0},{3,0},{4,0},{5,0},{6,0},{7,0}},
+		// Corner 3x3
+		{{0,0},{1,0},{2,0},{0,1},{1,1},{2,1},{0,2},{1,2},{2,2}},
+		// Second, third and fourth row
+		{{0,1},{1,1},{2,1},{3,1},{4,1},{5,1},{6,1},{7,1}},
+		{{0,2},{1,2},{2,2},{3,2},{4,2},{5,2},{6,2},{7,2}},
+		{{0,3},{1,3},{2,3},{3,3},{4,3},{5,3},{6,3},{7,3}},
+		// Diagonals of length 8 to 4
+		{{0,0},{1,1},{2,2},{3,3},{4,4},{5,5},{6,6},{7,7}},
+		{{0,1},{1,2},{2,3},{3,4},{4,5},{5,6},{6,7}},
+		{{0,2},{1,3},{2,4},{3,5},{4,6},{5,7}},
+		{{0,3},{1,4},{2,5},{3,6},{4,7}},
+		{{0,4},{1,5},{2,6},{3,7}}
+	};
+
+	/**
+	 * The number of patterns on the board (all orientations of all groups)
+	 */
+	public static final int PATTERNS;
+
+	/**
+	 * The number of weights of one phase, including the bias (the last weight)
+	 */
+	public static final int PHASE_SIZE;
+
+	// For every pattern the offset of its group within the weights of a phase
+	private static final int[] OFFSETS;
+
+	// For every field the patterns it belongs to and its digit value in them (entries FIRST[square] to FIRST[square + 1] - 1)
+	private static final int[] FIRST = new int[Bitboard.SQUARES + 1];
+	private static final int[] PATTERN = new int[Bitboard.SQUARES * 8];
+	private static final int[] POWER = new int[Bitboard.SQUARES * 8];
+
+	// The default weights, loaded on first use
+	private static PatternEvaluator defaultEvaluator;
+	private static boolean defaultLoaded;
+
+	static {
+		// Generate every distinct orientation of every group
+		List<int[]> patterns = new ArrayList<int[]>();
+		List<Integer> offsets = new ArrayList<Integer>();
+		int offset = 0;
+		for(int[][] group : GROUPS) {
+			Set<Long> seen = new HashSet<Long>();
+			for(int symmetry = 0; symmetry < Bitboard.SYMMETRIES; symmetry++) {
+				int[] squares = new int[group.length];
+				long set = 0;
+				for(int i = 0; i < group.length; i++) {
+					squares[i] = Bitboard.transformSquare(Bitboard.square(group[i][0], group[i][1]), symmetry);
+					set |= 1L << squares[i];
+				}
+				if(seen.add(set)) {
+					patterns.add(squares);
+					offsets.add(offset);
+				}
+			}
+			offset += power(group.length);
+		}
+		PATTERNS = patterns.size();
+		PHASE_SIZE = offset + 1;
+		OFFSETS = new int[PATTERNS];
+		for(int i = 0; i < PATTERNS; i++) {
+			OFFSETS[i] = offsets.get(i);
+		}
+
+		// Index the patterns by field
+		int entries = 0;
+		for(int square = 0; square < Bitboard.SQUARES; square++) {
+			FIRST[square] = entries;
+			for(int i = 0; i < PATTERNS; i++) {
+				int[] squares = patterns.get(i);
+				for(int digit = 0; digit < squares.length; digit++) {
+					if(squares[digit] == square) {
+						PATTERN[entries] = i;
+						POWER[entries] = power(digit);
+						entries++;
+					}
+				}
+			}
+		}
+		FIRST[Bitboard.SQUARES] = entries;
+	}
+
+	// Declare fields of object
+	private final short[] weights;
+
+	/**
+	 * Constructor for an evaluator with the given weights
+	 * @param pWeights The weights of all phases, PHASE_SIZE per phase
+	 */
+	public PatternEvaluator(short[] pWeights) {
+		if(pWeights.length != PHASES * PHASE_SIZE) {
+			throw new IllegalArgumentException("Expected " + PHASES * PHASE_SIZE + " weights, got " + pWeights.length);
+		}
+		weights = pWeights;
+	}
+
+	/**
+	 * Constructor reading the weights from a weight file
+	 * @param in The stream to read from (not closed)
+	 * @throws IOException If the stream cannot be read or the weights do not fit the patterns of this class
+	 */
+	public PatternEvaluator(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new GZIPInputStream(in));
+		if(data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IOException("This is not a pattern weight file");
+		}
+		if(data.readInt() != PHASES || data.readInt() != PHASE_SIZE) {
+			throw new IOException("The weights were fitted for different patterns");
+		}
+		weights = new short[PHASES * PHASE_SIZE];
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = data.readShort();
+		}
+	}
+
+	/**
+	 * Get the evaluator with the weights on the classpath, loading them on first use
+	 * @return The evaluator, or null if there is no usable weight file
+	 */
+	public static synchronized PatternEvaluator getDefault() {
+		if(!defaultLoaded) {
+			defaultLoaded = true;
+			try (InputStream in = PatternEvaluator.class.getResourceAsStream(RESOURCE)) {
+				if(in != null) {
+					defaultEvaluator = new PatternEvaluator(in);
+				}
+			} catch (IOException e) {
+				// Engines fall back to their own evaluation
+				defaultEvaluator = null;
+			}
+		}
+		return defaultEvaluator;
+	}
+
+	/**
+	 * Write the weights as a weight file
+	 * @param out The stream to write to (finished, but not closed)
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		GZIPOutputStream compressed = new GZIPOutputStream(out);
+		DataOutputStream data = new DataOutputStream(compressed);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(PHASES);
+		data.writeInt(PHASE_SIZE);
+		for(short weight : weights) {
+			data.writeShort(weight);
+		}
+		data.flush();
+		compressed.finish();
+	}
+
+	/**
+	 * Evaluate a position
+	 * @param grid The grid to evaluate
+	 * @param colour The colour to evaluate for
+	 * @return The estimated final piece difference for the colour, in 1/SCALE pieces
+	 */
+	public int evaluate(Grid grid, int colour) {
+		int[] codes = grid.getPatternCodes();
+		long light = grid.getPieces(1);
+		long dark = grid.getPieces(-1);
+		int pieces = Long.bitCount(light | dark);
+		int base = phase(pieces) * PHASE_SIZE;
+		int score = weights[base + PHASE_SIZE - 1];
+		for(int i = 0; i < PATTERNS; i++) {
+			score += weights[base + OFFSETS[i] + codes[i]];
+		}
+
+		// Every side keeps its stable discs, which bounds the final piece difference
+		if(pieces >= STABILITY_PIECES) {
+			int lower = (2 * Stability.countStable(light, dark) - 64) * SCALE;
+			int upper = (64 - 2 * Stability.countStable(dark, light)) * SCALE;
+			score = Math.max(lower, Math.min(upper, score));
+		}
+		return colour * score;
+	}
+
+	/**
+	 * Get the phase of the game
+	 * @param pieces The number of pieces on the board
+	 * @return The phase (0 to PHASES - 1)
+	 */
+	public static int phase(int pieces) {
+		return Math.min(PHASES - 1, Math.max(0, (pieces - 4) * PHASES / 60));
+	}
+
+	/**
+	 * Compute the index of every pattern's weight within the weights of all phases, e.g. to fit the weights
+	 * @param light The light pieces
+	 * @param dark The dark pieces
+	 * @param indices Filled with PATTERNS indices of the pattern weights, followed by the index of the bias
+	 */
+	public static void indices(long light, long dark, int[] indices) {
+		computeCodes(light, dark, indices);
+		int base = phase(Long.bitCount(light | dark)) * PHASE_SIZE;
+		for(int i = 0; i < PATTERNS; i++) {
+			indices[i] += base + OFFSETS[i];
+		}
+		indices[PATTERNS] = base + PHASE_SIZE - 1;
+	}
+
+	/**
+	 * Compute the codes of all patterns from scratch
+	 * @param light The light pieces
+	 * @param dark The dark pieces
+	 * @param codes Filled with the code of every pattern (at least PATTERNS entries)
+	 */
+	public static void computeCodes(long light, long dark, int[] codes) {
+		Arrays.fill(codes, 0, PATTERNS, 0);
+		for(long b = light; b != 0; b &= b - 1) {
+			change(codes, Long.numberOfTrailingZeros(b), 1);
+		}
+		for(long b = dark; b != 0; b &= b - 1) {
+			change(codes, Long.numberOfTrailingZeros(b), 2);
+		}
+	}
+
+	/**
+	 * Update the codes of all patterns for a move
+	 * @param codes The codes of the position before the move
+	 * @param square The field of the move
+	 * @param flips The pieces flipped by the move
+	 * @param colour The colour that moved
+	 */
+	public static void makeMove(int[] codes, int square, long flips, int colour) {
+		// A new piece adds its digit, a flipped piece changes its digit from 2 to 1 (light moved) or 1 to 2 (dark moved)
+		change(codes, square, colour == 1 ? 1 : 2);
+		for(long b = flips; b != 0; b &= b - 1) {
+			change(codes, Long.numberOfTrailingZeros(b), -colour);
+		}
+	}
+
+	/**
+	 * Update the codes of all patterns for taking back a move
+	 * @param codes The codes of the position after the move
+	 * @param square The field of the move
+	 * @param flips The pieces flipped by the move
+	 * @param colour The colour that moved
+	 */
+	public static void unmakeMove(int[] codes, int square, long flips, int colour) {
+		change(codes, square, colour == 1 ? -1 : -2);
+		for(long b = flips; b != 0; b &= b - 1) {
+			change(codes, Long.numberOfTrailingZeros(b), colour);
+		}
+	}
+
+	/**
+	 * Change the digit of a field in all patterns it belongs to
+	 * @param codes The codes of all patterns
+	 * @param square The field
+	 * @param delta The change of the digit
+	 */
+	private static void change(int[] codes, int square, int delta) {
+		for(int i = FIRST[square]; i < FIRST[square + 1]; i++) {
+			codes[PATTERN[i]] += delta * POWER[i];
+		}
+	}
+
+	/**
+	 * Compute a power of 3
+	 * @param exponent The exponent
+	 * @return 3 to the power of the exponent
+	 */
+	private static int power(int exponent) {
+		int result = 1;
+		for(int i = 0; i < exponent; i++) {
+			result *= 3;
+		}
+		return result;
+	}
+
+}
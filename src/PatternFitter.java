@@ -0,0 +1,232 @@
+// Import Java libraries
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class representing the offline tool fitting the weights of the PatternEvaluator to archived games.
+ * <p>
+ * Every position of every archived game is a sample whose target is the final number of light pieces minus dark pieces of its game.
+ * The samples are used in all eight orientations and with the colours swapped (negating the target). The weights minimise the
+ * squared error of the evaluation by gradient descent, where every weight takes a step of the mean error of the samples using it,
+ * so weights of rarely seen patterns stay small. Every tenth game is held back to measure the error on games not fitted to.
+ * Opening positions recur in many games, often rotated or mirrored; they are stored once in their canonical form
+ * (see Bitboard.canonical()) with the number of games reaching them and the sum of their targets.
+ * Usage: java PatternFitter [archive directory] [weight file] [iterations] (default ./archive, res/patterns.bin and 30).
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class PatternFitter {
+
+	/**
+	 * The number of iterations if none is specified
+	 */
+	public static final int DEFAULT_ITERATIONS = 30;
+
+	/**
+	 * The size of the steps relative to the mean error, shared out over the weights used by every sample
+	 */
+	private static final double STEP = 2.5 / (PatternEvaluator.PATTERNS + 1);
+
+	/**
+	 * Samples added to the count of every weight when averaging its error, so weights seen only a few times move slowly
+	 */
+	private static final int PRIOR = 10;
+
+	/**
+	 * Positions with at most this many pieces are merged with the samples of symmetric and equal positions
+	 */
+	private static final int MERGE_PIECES = 20;
+
+	// Declare fields of object
+	private long[] light = new long[1 << 16];
+	private long[] dark = new long[1 << 16];
+	private int[] target = new int[1 << 16];
+	private int[] targetSquares = new int[1 << 16];
+	private int[] occurrences = new int[1 << 16];
+	private boolean[] test = new boolean[1 << 16];
+	private int size;
+	private long positions;
+	private final Map<Long, Integer> merged = new HashMap<Long, Integer>();
+	private final double[] weights = new double[PatternEvaluator.PHASES * PatternEvaluator.PHASE_SIZE];
+
+	/**
+	 * Add every position of the archived games as samples
+	 * @param archive The archive
+	 */
+	public void addGames(GameArchive archive) {
+		for(int game = 0; game < archive.size(); game++) {
+			long l = archive.getStartPieces(game, 1);
+			long d = archive.getStartPieces(game, -1);
+			int result = archive.getResult(game, 1) - archive.getResult(game, -1);
+			for(int i = 0; i < archive.getMoveCount(game); i++) {
+				int move = archive.getMove(game, i);
+				int square = SaveFormat.decodeSquare(move);
+				if(square == Grid.PASS) {
+					continue;
+				}
+				add(l, d, result, game % 10 == 9);
+
+				int colour = SaveFormat.decodeColour(move);
+				long flips = Bitboard.flips(square, colour == 1 ? l : d, colour == 1 ? d : l);
+				if(colour == 1) {
+					l |= flips | (1L << square);
+					d &= ~flips;
+				}
+				else {
+					d |= flips | (1L << square);
+					l &= ~flips;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add one sample, merging it with an earlier sample of the same canonical position early in the game
+	 * @param l The light pieces
+	 * @param d The dark pieces
+	 * @param result The final number of light pieces minus dark pieces
+	 * @param held Whether the sample is held back to measure the error
+	 */
+	private void add(long l, long d, int result, boolean held) {
+		positions++;
+		Long key = null;
+		if(Long.bitCount(l | d) <= MERGE_PIECES) {
+			int symmetry = Bitboard.canonical(l, d);
+			l = Bitboard.transform(l, symmetry);
+			d = Bitboard.transform(d, symmetry);
+			key = Grid.hash(l, d, held ? 1 : -1);
+			Integer sample = merged.get(key);
+
+			// A hash collision simply leaves the position unmerged
+			if(sample != null && light[sample] == l && dark[sample] == d && test[sample] == held) {
+				target[sample] += result;
+				targetSquares[sample] += result * result;
+				occurrences[sample]++;
+				return;
+			}
+		}
+
+		if(size == light.length) {
+			light = Arrays.copyOf(light, size * 2);
+			dark = Arrays.copyOf(dark, size * 2);
+			target = Arrays.copyOf(target, size * 2);
+			targetSquares = Arrays.copyOf(targetSquares, size * 2);
+			occurrences = Arrays.copyOf(occurrences, size * 2);
+			test = Arrays.copyOf(test, size * 2);
+		}
+		light[size] = l;
+		dark[size] = d;
+		target[size] = result;
+		targetSquares[size] = result * result;
+		occurrences[size] = 1;
+		test[size] = held;
+		if(key != null) {
+			merged.putIfAbsent(key, size);
+		}
+		size++;
+	}
+
+	/**
+	 * Run one iteration of gradient descent over all samples that are not held back
+	 * @return The root mean squared error of the samples held back before the iteration, in pieces
+	 */
+	public double iterate() {
+		double[] error = new double[weights.length];
+		int[] count = new int[weights.length];
+		int[] indices = new int[PatternEvaluator.PATTERNS + 1];
+		double testError = 0;
+		long testCount = 0;
+
+		for(int i = 0; i < size; i++) {
+			for(int symmetry = 0; symmetry < Bitboard.SYMMETRIES; symmetry++) {
+				long l = Bitboard.transform(light[i], symmetry);
+				long d = Bitboard.transform(dark[i], symmetry);
+
+				// Every position counts once as it is and once with the colours swapped
+				for(int sign = 1; sign >= -1; sign -= 2) {
+					PatternEvaluator.indices(sign == 1 ? l : d, sign == 1 ? d : l, indices);
+					double prediction = 0;
+					for(int index : indices) {
+						prediction += weights[index];
+					}
+					// The residuals of all occurrences of the sample, summed and squared
+					double residual = sign * target[i] - occurrences[i] * prediction;
+					if(test[i]) {
+						testError += targetSquares[i] - 2 * prediction * sign * target[i] + occurrences[i] * prediction * prediction;
+						testCount += occurrences[i];
+						continue;
+					}
+					for(int index : indices) {
+						error[index] += residual;
+						count[index] += occurrences[i];
+					}
+				}
+			}
+		}
+
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] += STEP * error[i] / (count[i] + PRIOR);
+		}
+		return Math.sqrt(testError / Math.max(1, testCount));
+	}
+
+	/**
+	 * @return The fitted weights, rounded to 1/SCALE pieces
+	 */
+	public PatternEvaluator getEvaluator() {
+		short[] rounded = new short[weights.length];
+		for(int i = 0; i < weights.length; i++) {
+			rounded[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(weights[i] * PatternEvaluator.SCALE)));
+		}
+		return new PatternEvaluator(rounded);
+	}
+
+	/**
+	 * @return The number of samples (distinct positions, before symmetries)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of positions added, before merging
+	 */
+	public long getPositions() {
+		return positions;
+	}
+
+	/**
+	 * Main method fitting the weights and writing the weight file
+	 * @param args The archive directory, the weight file and the number of iterations (all optional)
+	 * @throws IOException If the archive cannot be read or the weight file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : GameArchive.DEFAULT_DIRECTORY);
+		File file = new File(args.length > 1 ? args[1] : "res/patterns.bin");
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+
+		PatternFitter fitter = new PatternFitter();
+		try (GameArchive archive = new GameArchive(directory)) {
+			fitter.addGames(archive);
+			System.out.println(archive.size() + " games, " + fitter.getPositions() + " positions, " + fitter.size() + " distinct");
+		}
+
+		for(int i = 1; i <= iterations; i++) {
+			long start = System.nanoTime();
+			double error = fitter.iterate();
+			System.out.printf("Iteration %d: error %.2f pieces on held back games (%.1f s)%n", i, error, (System.nanoTime() - start) / 1e9);
+		}
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			fitter.getEvaluator().write(out);
+		}
+		System.out.println("Weights written to " + file);
+	}
+
+}
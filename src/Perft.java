@@ -0,0 +1,217 @@
+// Import Java libraries
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class representing a perft (performance test) of the move generation: counting the positions at a fixed depth from the Othello start position.
+ * <p>
+ * Passes are handled as in a game of Othello: a player without a valid move passes, which counts as a ply, and a finished game
+ * (neither player can move) counts as one position even before the depth is reached. The counts of the bitboard move generator
+ * (Bitboard.legalMoves and Bitboard.flips), single-threaded and split at the root over a fork/join pool, are checked
+ * against the published reference counts and against the moves of the grid itself (Grid.checkMoveValid and Grid.makeMove),
+ * so a new move generator can be validated against the rules of the game. The tool doubles as the throughput benchmark of the rules engine.
+ * Usage: java Perft [depth] [threads] [grid depth], checking the grid up to grid depth (default 11, all cores and 8)
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class Perft {
+
+	/**
+	 * The published number of positions at depths 0 to 14 from the Othello start position
+	 */
+	public static final long[] REFERENCE = {1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L, 24571284L,
+			212258800L, 1939886636L, 18429641748L, 184042084512L};
+
+	/**
+	 * Below this depth the positions are counted by the task itself instead of being split into subtasks
+	 */
+	private static final int SPLIT_DEPTH = 6;
+
+	/**
+	 * Utility class, not to be instantiated
+	 */
+	private Perft() {
+	}
+
+	/**
+	 * Count the positions at a depth with the bitboard move generator
+	 * @param player The pieces of the player to move
+	 * @param opponent The pieces of the opponent
+	 * @param depth The number of plies
+	 * @return The number of positions
+	 */
+	public static long count(long player, long opponent, int depth) {
+		if(depth == 0) {
+			return 1;
+		}
+		long moves = Bitboard.legalMoves(player, opponent);
+		if(moves == 0) {
+			if(Bitboard.legalMoves(opponent, player) == 0) {
+				return 1;
+			}
+			return count(opponent, player, depth - 1);
+		}
+
+		// At the last ply every move is one position
+		if(depth == 1) {
+			return Long.bitCount(moves);
+		}
+		long nodes = 0;
+		for(; moves != 0; moves &= moves - 1) {
+			int square = Long.numberOfTrailingZeros(moves);
+			long flips = Bitboard.flips(square, player, opponent);
+			nodes += count(opponent & ~flips, player | flips | (1L << square), depth - 1);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Count the positions at a depth with the bitboard move generator, splitting the work over a fork/join pool
+	 * @param player The pieces of the player to move
+	 * @param opponent The pieces of the opponent
+	 * @param depth The number of plies
+	 * @param pool The pool to run the subtasks in
+	 * @return The number of positions
+	 */
+	public static long countParallel(long player, long opponent, int depth, ForkJoinPool pool) {
+		return pool.invoke(new Task(player, opponent, depth));
+	}
+
+	/**
+	 * Count the positions at a depth by the moves of the grid, trying every field with checkMoveValid() and playing the valid moves
+	 * with makeMove() and unmakeMove(). This is the reference for the bitboard move generator.
+	 * @param grid The grid
+	 * @param colour The colour to move
+	 * @param depth The number of plies
+	 * @return The number of positions
+	 */
+	public static long countGrid(Grid grid, int colour, int depth) {
+		if(depth == 0) {
+			return 1;
+		}
+		long nodes = 0;
+		boolean moved = false;
+		for(int y = 0; y < grid.getSizeY(); y++) {
+			for(int x = 0; x < grid.getSizeX(); x++) {
+				if(grid.checkMoveValid(x, y, colour)) {
+					int token = grid.makeMove(x, y, colour);
+					nodes += countGrid(grid, -colour, depth - 1);
+					grid.unmakeMove(token);
+					moved = true;
+				}
+			}
+		}
+		if(moved) {
+			return nodes;
+		}
+
+		// Pass, or count the finished game
+		if(!grid.checkValidMoves(-colour)) {
+			return 1;
+		}
+		grid.setSideToMove(colour);
+		int token = grid.pass();
+		nodes = countGrid(grid, -colour, depth - 1);
+		grid.unmakeMove(token);
+		return nodes;
+	}
+
+	/**
+	 * Class representing the count of one subtree, split into one subtask per move above SPLIT_DEPTH
+	 */
+	private static final class Task extends RecursiveTask<Long> {
+
+		/**
+		 * Objects of this class may be stored using Serialisation
+		 */
+		private static final long serialVersionUID = 3350431569270424081L;
+
+		// Declare fields of object
+		private final long player;
+		private final long opponent;
+		private final int depth;
+
+		/**
+		 * Constructor for the task of a subtree
+		 * @param pPlayer The pieces of the player to move
+		 * @param pOpponent The pieces of the opponent
+		 * @param pDepth The number of plies
+		 */
+		Task(long pPlayer, long pOpponent, int pDepth) {
+			player = pPlayer;
+			opponent = pOpponent;
+			depth = pDepth;
+		}
+
+		/**
+		 * Count the subtree, forking a subtask per move
+		 */
+		@Override
+		protected Long compute() {
+			long moves = Bitboard.legalMoves(player, opponent);
+			if(depth < SPLIT_DEPTH || moves == 0) {
+				return count(player, opponent, depth);
+			}
+			Task[] tasks = new Task[Long.bitCount(moves)];
+			for(int i = 0; moves != 0; moves &= moves - 1, i++) {
+				int square = Long.numberOfTrailingZeros(moves);
+				long flips = Bitboard.flips(square, player, opponent);
+				tasks[i] = new Task(opponent & ~flips, player | flips | (1L << square), depth - 1);
+			}
+			invokeAll(tasks);
+			long nodes = 0;
+			for(Task task : tasks) {
+				nodes += task.join();
+			}
+			return nodes;
+		}
+	}
+
+	/**
+	 * Main method counting every depth up to the given one and printing the counts and the nodes per second
+	 * @param args The maximum depth, the number of threads and the maximum depth to check the grid at (all optional)
+	 */
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int gridDepth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+		Grid grid = new Grid();
+		grid.initialiseOthello();
+		long player = grid.getPieces(-1);
+		long opponent = grid.getPieces(1);
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		boolean correct = true;
+
+		System.out.printf("%5s %14s %9s %14s %14s %9s%n", "Depth", "Nodes", "Check", "Nodes/s", "Parallel/s", "Speedup");
+		for(int depth = 1; depth <= maxDepth; depth++) {
+			long start = System.nanoTime();
+			long nodes = count(player, opponent, depth);
+			long single = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			long parallel = countParallel(player, opponent, depth, pool);
+			long parallelTime = System.nanoTime() - start;
+
+			// The counts must agree with each other, with the reference and with the moves of the grid
+			String check = "ok";
+			if(parallel != nodes) {
+				check = "PARALLEL";
+			}
+			else if(depth < REFERENCE.length && nodes != REFERENCE[depth]) {
+				check = "REFERENCE";
+			}
+			else if(depth <= gridDepth && countGrid(grid, -1, depth) != nodes) {
+				check = "GRID";
+			}
+			correct &= check.equals("ok");
+
+			System.out.printf("%5d %14d %9s %14.0f %14.0f %9.2f%n", depth, nodes, check,
+					nodes * 1e9 / Math.max(1, single), nodes * 1e9 / Math.max(1, parallelTime), (double) single / Math.max(1, parallelTime));
+		}
+		pool.shutdown();
+		System.out.println(correct ? "All counts are correct." : "Some counts are WRONG.");
+	}
+
+}
@@ -22,22 +22,27 @@ public abstract class Player implements java.io.Serializable{
 	private String name;
 	
 	/**
-	 * Player makes a move on the Reversi board
-	 * @param grid The grid to make the move on
+	 * Player chooses a move on the Reversi board without making it
+	 * @param grid The grid to choose the move on (the player has at least one valid move)
+	 * @return The coordinates of the move
 	 */
-	public abstract void makeMove(Grid grid);
+	public abstract int[] chooseMove(Grid grid);
 	
 	/**
-	 * Place a piece in the centre 4 fields as part of the setup in traditional Reversi
+	 * Player makes a move on the Reversi board
+	 * @param grid The grid to make the move on
 	 */
-	public abstract void placeCentrePiece(Grid grid);
+	public void makeMove(Grid grid) {
+		int[] move = chooseMove(grid);
+		grid.makeMove(move[0], move[1], getColour());
+	}
 	
 	/**
-	 * The player skips a move
+	 * Choose a field of the centre 4 fields to place a piece on as part of the setup in traditional Reversi
+	 * @param grid The grid being set up
+	 * @return The empty centre field as {x, y}
 	 */
-	public void skipMove() {
-		System.out.println(getName() + " skips because there are no valid moves.");
-	}
+	public abstract int[] chooseCentrePiece(Grid grid);
 	
 	/**
 	 * Return the colour of this player's pieces
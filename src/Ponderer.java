@@ -0,0 +1,249 @@
+/**
+ * Class representing pondering: a computer player searching in the background while its human opponent thinks about a move.
+ * <p>
+ * As a game listener the ponderer starts a background thread when a human player's turn starts. The thread searches the positions
+ * after the human's valid moves one depth at a time, beginning with the move it predicts (the best move for the human at the
+ * depth before), and stores the results in the transposition table of the computer player's engine. Once the human has moved,
+ * the background search is stopped, and the engine's own search finds the moves and scores of the position it was given
+ * in the table instead of searching them again. If the human played the predicted move, this is counted as a ponder hit.
+ * <p>
+ * The background search only uses a configurable share of the processor, so the console stays responsive.
+ * Pondering only applies to players whose engine is an AlphaBetaEngine, as the results are passed on through the transposition table.
+ * If the engine has no table, the ponderer searches into a table of its own and hands it to the engine once the human has moved.
+ * The handed over table is not saved with the engine, as the engine's memory budget stays unchanged.
+ * Every background search is limited like the player's own searches (by its time limit, or else its node limit), and stopping it is prompt.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class Ponderer implements GameListener {
+
+	/**
+	 * The share of the processor used if none is specified
+	 */
+	public static final double DEFAULT_CPU_SHARE = 0.5;
+
+	// Declare fields of object
+	private final ComputerPlayer player;
+	private final double cpuShare;
+	private boolean predictedOnly;
+	private AlphaBetaEngine engine;
+	private AlphaBetaEngine target;
+	private TranspositionTable table;
+	private Thread thread;
+	private volatile boolean stopped;
+	private volatile int predicted = TranspositionTable.NO_MOVE;
+	private int ponderHits;
+	private int ponderMisses;
+
+	/**
+	 * Constructor for a Ponderer using the default share of the processor
+	 * @param pPlayer The computer player to ponder for
+	 */
+	public Ponderer(ComputerPlayer pPlayer) {
+		this(pPlayer, DEFAULT_CPU_SHARE);
+	}
+
+	/**
+	 * Constructor for a Ponderer
+	 * @param pPlayer The computer player to ponder for
+	 * @param pCpuShare The share of the processor the background search may use (more than 0, 1 for all of it)
+	 */
+	public Ponderer(ComputerPlayer pPlayer, double pCpuShare) {
+		if(pCpuShare <= 0 || pCpuShare > 1) {
+			throw new IllegalArgumentException("The share of the processor must be more than 0 and at most 1");
+		}
+		player = pPlayer;
+		cpuShare = pCpuShare;
+	}
+
+	/**
+	 * Start pondering when a human opponent of the player is about to move, stop when the player itself is
+	 */
+	@Override
+	public void turnStarted(Game game, Player turn) {
+		stop();
+		if(turn instanceof HumanPlayer && turn.getColour() == -player.getColour()) {
+			start(game.getGrid(), turn.getColour());
+		}
+	}
+
+	/**
+	 * Stop pondering once the opponent has moved, counting whether the move was predicted
+	 */
+	@Override
+	public void moveMade(Game game, Player turn, int x, int y) {
+		if(thread != null) {
+			int move = predicted;
+			stop();
+			if(move == Bitboard.square(x, y)) {
+				ponderHits++;
+			}
+			else {
+				ponderMisses++;
+			}
+
+			// Give the player's engine the results if they were searched into the ponderer's own table
+			if(target.getTranspositionTable() == null) {
+				target.setTranspositionTable(table);
+			}
+		}
+	}
+
+	/**
+	 * Stop pondering if the opponent cannot move
+	 */
+	@Override
+	public void moveSkipped(Game game, Player turn) {
+		stop();
+	}
+
+	/**
+	 * Stop pondering when the game is over
+	 */
+	@Override
+	public void gameOver(Game game, Player blocked) {
+		stop();
+	}
+
+	/**
+	 * Start the background search on a copy of the grid
+	 * @param grid The grid with the opponent to move
+	 * @param colour The colour of the opponent
+	 */
+	private void start(Grid grid, int colour) {
+		if(!(player.getEngine() instanceof AlphaBetaEngine) || !grid.checkValidMoves(colour)) {
+			return;
+		}
+
+		// The player solves the endgame instead of searching it, so there is nothing to prepare
+		if(EndgameSolver.countEmpties(grid) - 1 <= player.getEndgameEmpties()) {
+			return;
+		}
+
+		target = (AlphaBetaEngine) player.getEngine();
+		TranspositionTable shared = target.getTranspositionTable();
+		if(shared == null) {
+			if(table == null) {
+				table = new TranspositionTable(AlphaBetaEngine.DEFAULT_HASH_MEGABYTES);
+			}
+			shared = table;
+		}
+		engine = new AlphaBetaEngine(target.getDepth(), target.getNodeLimit(), 0);
+		engine.setTimeLimit(target.getTimeLimit());
+		engine.setTranspositionTable(shared);
+		engine.setEvaluator(target.getEvaluator());
+		engine.setHeuristics(target.getMoveOrdering().getHeuristics());
+		engine.setCpuShare(cpuShare);
+
+		Grid copy = new Grid(grid);
+		int maxDepth = target.getDepth();
+		stopped = false;
+		predicted = TranspositionTable.NO_MOVE;
+		thread = new Thread(() -> ponder(copy, colour, maxDepth), "Ponderer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Search the replies to the opponent's moves one depth at a time, the predicted move first, until stopped or at the maximum depth
+	 * @param grid The copy of the grid with the opponent to move
+	 * @param colour The colour of the opponent
+	 * @param maxDepth The depth of the player's own searches
+	 */
+	private void ponder(Grid grid, int colour, int maxDepth) {
+		for(int depth = 1; depth <= maxDepth && !stopped; depth++) {
+			// Predict the opponent's move with a search one move shallower
+			if(depth > 1) {
+				engine.setDepth(depth - 1);
+				int[] move = engine.findBestMove(grid, colour);
+				if(stopped) {
+					return;
+				}
+				predicted = Bitboard.square(move[0], move[1]);
+			}
+
+			engine.setDepth(depth);
+			long moves = grid.legalMoves(colour);
+			if(predicted != TranspositionTable.NO_MOVE) {
+				searchReply(grid, colour, predicted);
+				moves &= ~(1L << predicted);
+			}
+			for(; moves != 0 && !stopped && !predictedOnly; moves &= moves - 1) {
+				searchReply(grid, colour, Long.numberOfTrailingZeros(moves));
+			}
+		}
+	}
+
+	/**
+	 * Search the position after one of the opponent's moves, as the player's engine will
+	 * @param grid The grid with the opponent to move
+	 * @param colour The colour of the opponent
+	 * @param square The move of the opponent
+	 */
+	private void searchReply(Grid grid, int colour, int square) {
+		int token = grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+		engine.findBestMove(grid, -colour);
+		grid.unmakeMove(token);
+	}
+
+	/**
+	 * Stop the background search and wait for the thread to finish, so the player's engine has the processor and the table to itself
+	 */
+	public void stop() {
+		if(thread == null) {
+			return;
+		}
+		stopped = true;
+		engine.stop();
+		boolean interrupted = false;
+		while(thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	/**
+	 * @return whether only the predicted move of the opponent is searched
+	 */
+	public boolean isPredictedOnly() {
+		return predictedOnly;
+	}
+
+	/**
+	 * @param predictedOnly whether to search only the predicted move of the opponent (false to search all its moves, the predicted one first)
+	 */
+	public void setPredictedOnly(boolean predictedOnly) {
+		this.predictedOnly = predictedOnly;
+	}
+
+	/**
+	 * @return the share of the processor the background search may use
+	 */
+	public double getCpuShare() {
+		return cpuShare;
+	}
+
+	/**
+	 * @return the number of opponent moves that were predicted
+	 */
+	public int getPonderHits() {
+		return ponderHits;
+	}
+
+	/**
+	 * @return the number of opponent moves that were not predicted
+	 */
+	public int getPonderMisses() {
+		return ponderMisses;
+	}
+
+}
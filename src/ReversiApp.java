@@ -1,10 +1,6 @@
 // Import Java libraries
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 
 /**
  * Class representing an instance of the Reversi application
@@ -28,6 +24,8 @@ public class ReversiApp {
 	 */
 	private boolean exit;
 	private static Statistic stats;
+	private static StatisticLog statisticLog;
+	private static GameArchive archive;
 	
 	/**
 	 * Constructor for the ReversiApp class, initialising the exit field
@@ -263,14 +261,47 @@ public class ReversiApp {
 		
 	}
 	
+	/**
+	 * Create a ponderer letting a computer player search while its human opponent thinks
+	 * @param player The player that may ponder
+	 * @param opponent Its opponent
+	 * @return The ponderer, or null if the player is not a computer playing a human
+	 */
+	private Ponderer ponderer(Player player, Player opponent) {
+		if(player instanceof ComputerPlayer && opponent instanceof HumanPlayer) {
+			return new Ponderer((ComputerPlayer) player);
+		}
+		return null;
+	}
+	
 	/**
 	 * Runs a game of Reversi
 	 * @param game The game instance to be run
 	 */
 	public void runGame(Game game) {
 		
-		// Run the game
+		// Run the game, displaying it on the console and archiving it once it is over
+		ConsoleListener console = new ConsoleListener();
+		game.addListener(console);
+		GameArchive archive = getArchive();
+		if(archive != null) {
+			game.addListener(archive);
+		}
+		Ponderer[] ponderers = {ponderer(game.getPlayer1(), game.getPlayer2()), ponderer(game.getPlayer2(), game.getPlayer1())};
+		for(Ponderer ponderer : ponderers) {
+			if(ponderer != null) {
+				game.addListener(ponderer);
+			}
+		}
 		boolean gameOver = game.run();
+		game.removeListener(console);
+		game.removeListener(archive);
+		for(Ponderer ponderer : ponderers) {
+			if(ponderer != null) {
+				ponderer.stop();
+				game.removeListener(ponderer);
+			}
+		}
 		
 		if(!gameOver) {
 			// Display exit menu
@@ -303,12 +334,19 @@ public class ReversiApp {
 				System.out.println("Something went wrong. Your game could not be saved.");
 			}
 		}
-		else {
-			if(game.getPlayers() == 1) {
-				stats.addSingleplayer(game.getWinner());
+		// Record the result, unless the statistics could not be opened
+		else if(statisticLog != null) {
+			try {
+				if(game.getPlayers() == 1 || game.getPlayers() == 2) {
+					statisticLog.record(game.getPlayers(), game.getGamemode(), game.getWinner());
+				}
 			}
-			else if(game.getPlayers() == 2) {
-				stats.addMultiplayer(game.getWinner());
+			catch (IOException i) {
+				System.out.println();
+				System.out.println(i.getMessage());
+				System.out.println("Statistics for this game could not be saved.");
+				System.out.println();
+				InputOutput.getInput("Press Enter to continue...");
 			}
 		}
 		
@@ -328,7 +366,7 @@ public class ReversiApp {
 		// Get filename for save file from user
 		System.out.println();
 		String saveName = InputOutput.getInput("Enter a name for your save file: ");
-		saveName = saveName + ".ser";
+		saveName = saveName + SaveFormat.EXTENSION;
 		
 		// Check whether save file with same name exists
 		for(int i = 0; i < saveFiles.length; i++) {
@@ -346,7 +384,7 @@ public class ReversiApp {
 			System.out.println();
 			System.out.println("This save file already exists.");
 			saveName = InputOutput.getInput("Enter a name for your save file: ");
-			saveName = saveName + ".ser";
+			saveName = saveName + SaveFormat.EXTENSION;
 			
 			// Check whether save file with same name exists
 			for(int i = 0; i < saveFiles.length; i++) {
@@ -357,24 +395,16 @@ public class ReversiApp {
 			}
 		}
 		
-		// Declare output streams for saving game
-		FileOutputStream fileOut;
-		ObjectOutputStream out;
-		
 		try {
-			// Save game instance using serialisation
-			fileOut = new FileOutputStream("./saves/"+ saveName);
-			out = new ObjectOutputStream(fileOut);
-			out.writeObject(game);
-			out.close();
-			fileOut.close();
+			// Save game instance in the binary save format
+			SaveFormat.write(game, new File("./saves/"+ saveName));
 			System.out.println();
 			System.out.println("Your game has been saved as " + saveName.replaceFirst("[.][^.]+$", ""));
 			System.out.println();
 			InputOutput.getInput("Press Enter to continue...");
 		} 
 		catch (IOException i) {
-			// Output error if something goes wrong. Could not close streams in finally block since they throw IO warnings themselves
+			// Output error if something goes wrong
 			System.out.println();
 			System.out.println("Something went wrong. Your game could not be saved.");
 			System.out.println();
@@ -424,29 +454,23 @@ public class ReversiApp {
 			
 			// Open savefile
 			else {
-				// Declare filename and input streams
+				// Declare filename
 				String filename = saveFiles[save-1];
-				FileInputStream fileIn;
-		        ObjectInputStream in;
 		        
 		        // Declare game object
 		        Game game = null;
 		        
 		        try {
-		        	// Try reading in Game using serialisation
-					fileIn = new FileInputStream("./saves/"+filename);
-					in = new ObjectInputStream(fileIn);
-					game = (Game) in.readObject();
-					in.close();
-			        fileIn.close();
-				} catch (ClassNotFoundException c) {
-					// If this exception is thrown, the Game class of this project is faulty
-		            System.out.println("Your save file could not be loaded. The game might be corrupted.");
-		            System.out.println();
-					InputOutput.getInput("Press Enter to continue...");
-		            return;
-		        } catch (IOException i) {
-		        	// If this is thrown, there was a problem reading from the file. Could not close streams in finally block since they throw IO warnings themselves
+		        	// Read the game; saves made by earlier versions used serialisation
+		        	File file = new File("./saves/"+filename);
+		        	if(filename.endsWith(".ser")) {
+		        		game = SaveFormat.readSerialised(file);
+		        	}
+		        	else {
+		        		game = SaveFormat.read(file);
+		        	}
+				} catch (IOException i) {
+		        	// If this is thrown, there was a problem reading from the file or the save is damaged
 					System.out.println("Your save file could not be loaded. The save might be corrupted.");
 					System.out.println();
 					InputOutput.getInput("Press Enter to continue...");
@@ -662,79 +686,46 @@ public class ReversiApp {
 	}
 	
 	/**
-	 * Load statistics from file
-	 * @return The statistics
+	 * Get the archive finished games are appended to, opening it on first use
+	 * @return The archive, or null if it cannot be opened
 	 */
-	public Statistic loadStats() {
-		
-		Statistic stat = null;
-		
-		// Get statistics file
-		File statistics = new File("./stats/statistics.ser");
-		
-		if(statistics.exists()) {
-			FileInputStream fileIn;
-	        ObjectInputStream in;
-	        
-	        try {
-	        	// Try reading in Statistic using serialisation
-				fileIn = new FileInputStream(statistics);
-				in = new ObjectInputStream(fileIn);
-				stat = (Statistic) in.readObject();
-				in.close();
-		        fileIn.close();
-			} catch (ClassNotFoundException c) {
-				// If this exception is thrown, the Statistics class of this project is faulty
-	            System.out.println("Your statistic file could not be loaded. The game might be corrupted.");
-	            System.out.println();
-				InputOutput.getInput("Press Enter to continue...");
-	        } catch (IOException i) {
-	        	// If this is thrown, there was a problem reading from the file. Could not close streams in finally block since they throw IO warnings themselves
-				System.out.println("Your statistic file could not be loaded. The file will be resey.");
-				System.out.println();
-				InputOutput.getInput("Press Enter to continue...");
-	        } 
-	        
-		}
-
-		// If no statistic exists, create empty one
-		if(stat == null) {
-			stat = new Statistic();
+	public static GameArchive getArchive() {
+		if(archive == null) {
+			try {
+				archive = GameArchive.open();
+			} catch (IOException e) {
+				// Games are still played if the archive is not available, they are just not archived
+				return null;
+			}
 		}
-
-		return stat;
+		return archive;
 	}
 	
 	/**
-	 * Save the current statistics to file
+	 * Load statistics from file: the last snapshot and the results recorded since
+	 * @return The statistics
 	 */
-	public static void saveStats() {
-		
-		// Get statistics file
-		File statistics = new File("./stats/statistics.ser");
-		
-		// Declare output streams for saving stats
-		FileOutputStream fileOut;
-		ObjectOutputStream out;
+	public Statistic loadStats() {
 		
 		try {
-			// Save stats instance using serialisation
-			fileOut = new FileOutputStream(statistics);
-			out = new ObjectOutputStream(fileOut);
-			out.writeObject(stats);
-			out.close();
-			fileOut.close();
-		} 
-		catch (IOException i) {
-			// Output error if something goes wrong. Could not close streams in finally block since they throw IO warnings themselves
-			System.out.println();
-
-			System.out.println(i.getMessage());
-			System.out.println("Statistics for this game could not be saved.");
+			statisticLog = StatisticLog.open();
+		} catch (IOException i) {
+			// If this is thrown, there was a problem reading from the files, which are then replaced by empty statistics
+			System.out.println("Your statistic file could not be loaded. The file will be reset.");
 			System.out.println();
 			InputOutput.getInput("Press Enter to continue...");
+			new File(StatisticLog.DEFAULT_DIRECTORY, "statistics.ser").delete();
+			new File(StatisticLog.DEFAULT_DIRECTORY, "statistics.log").delete();
+			try {
+				statisticLog = StatisticLog.open();
+			} catch (IOException e) {
+				System.out.println("Statistics will not be saved: " + e.getMessage());
+				statisticLog = null;
+				return new Statistic();
+			}
 		}
 		
+		return statisticLog.getStatistic();
 	}
 	
 	/**
@@ -742,21 +733,24 @@ public class ReversiApp {
 	 */
 	public void viewStats() {
 		
+		// Take all figures from one snapshot, so they agree even while games are being recorded
+		Statistic.Snapshot snapshot = stats.snapshot();
+		
 		System.out.println();
 		System.out.println("+------------------------------------------------------------+");
 		System.out.println("|                         Statistics                         |");
 		System.out.println("+------------------------------------------------------------+");
 		System.out.println("|                        Singleplayer                        |");
 		System.out.println("|                                                            |");
-		System.out.printf("|     Games won: %9d          Games lost: %8d     |\n",stats.getSpGamesWon(),stats.getSpGamesLost());
-		System.out.printf("|     Draws: %13d          Total: %13d     |\n",stats.getSpDraws(),stats.getSpAnalysedGames());
-		System.out.printf("|     Win rate:       %.2f                                   |\n", stats.getSpWinRate());
+		System.out.printf("|     Games won: %9d          Games lost: %8d     |\n",snapshot.getSpGamesWon(),snapshot.getSpGamesLost());
+		System.out.printf("|     Draws: %13d          Total: %13d     |\n",snapshot.getSpDraws(),snapshot.getSpAnalysedGames());
+		System.out.printf("|     Win rate:       %.2f                                   |\n", snapshot.getSpWinRate());
 		System.out.println("|                                                            |");
 		System.out.println("|                        Multiplayer                         |");
 		System.out.println("|                                                            |");
-		System.out.printf("|     Player 1 won: %6d          Player 2 won: %6d     |\n",stats.getMpPlayer1Wins(),stats.getMpPlayer2Wins());
-		System.out.printf("|     Draws: %13d          Total: %13d     |\n",stats.getMpDraws(),stats.getMpAnalysedGames());
-		System.out.printf("|     Win rate P1:    %.2f          Win rate P2:    %.2f     |\n", stats.getMpPlayer1WinRate(), stats.getMpPlayer2WinRate());
+		System.out.printf("|     Player 1 won: %6d          Player 2 won: %6d     |\n",snapshot.getMpPlayer1Wins(),snapshot.getMpPlayer2Wins());
+		System.out.printf("|     Draws: %13d          Total: %13d     |\n",snapshot.getMpDraws(),snapshot.getMpAnalysedGames());
+		System.out.printf("|     Win rate P1:    %.2f          Win rate P2:    %.2f     |\n", snapshot.getMpPlayer1WinRate(), snapshot.getMpPlayer2WinRate());
 		System.out.println("|                                                            |");
 		System.out.println("|     (1)     Reset statistics                               |");
 		System.out.println("|     (0)     Back to main menu                              |");
@@ -782,8 +776,18 @@ public class ReversiApp {
 	 * Reset Statistics to 0
 	 */
 	public void deleteStats() {
-		stats.reset();
-		saveStats();
+		try {
+			if(statisticLog != null) {
+				statisticLog.reset();
+			}
+			else {
+				stats.reset();
+			}
+		} catch (IOException i) {
+			System.out.println();
+			System.out.println(i.getMessage());
+			System.out.println("Statistics could not be saved.");
+		}
 		System.out.println();
 		System.out.println("Statistics have been reset.");
 		System.out.println();
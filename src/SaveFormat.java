@@ -0,0 +1,442 @@
+// Import Java libraries
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Class representing the binary format of save files (.sav), replacing Java serialisation of the Game object.
+ * <p>
+ * A save holds the start position as two bitboards, the colour to move, the game settings, both players (with the settings of
+ * their search engines) and the list of moves made. Loading replays the moves, so the position and its history are restored exactly.
+ * All numbers are big-endian:
+ * <pre>
+ * int      magic "RVSG"
+ * byte     format version
+ * byte     players, gamemode, starting player, hints
+ * short    rounds
+ * boolean  game over
+ * long     light pieces, dark pieces of the start position
+ * byte     colour to move in the start position
+ *          player 1, player 2
+ * byte     number of moves, followed by one byte per move: field index (64 for a pass) + 128 if light moved
+ * int      CRC32 of all bytes before it
+ * </pre>
+ * A player is a type byte (0 human, 1 computer), the colour byte and the name (modified UTF-8); a computer player adds
+ * its number of threads, the empty fields from which on it solves the endgame, whether it plays without an opening book,
+ * and its engine (a type byte and the engine settings, for alpha-beta including the move ordering heuristics and whether it
+ * evaluates without patterns). Saves of version 1 are still read: they store time limits as an int and lack the book,
+ * heuristics and pattern settings, which then take their defaults.
+ * Usage of the converter: java SaveFormat [directory] [-delete], converting the .ser files of ./saves by default.
+ * The .ser files are kept unless -delete is given, in which case a file is only deleted once its converted save is written and verified.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class SaveFormat {
+
+	/**
+	 * The first four bytes of every save ("RVSG")
+	 */
+	public static final int MAGIC = 0x52565347;
+
+	/**
+	 * The version written by this class
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The file extension of save files
+	 */
+	public static final String EXTENSION = ".sav";
+
+	// Player types
+	private static final int HUMAN = 0;
+	private static final int COMPUTER = 1;
+
+	// Engine types
+	private static final int GREEDY = 0;
+	private static final int ALPHA_BETA = 1;
+	private static final int MCTS = 2;
+
+	/**
+	 * Stored as the field index of a pass
+	 */
+	private static final int PASS = 64;
+
+	/**
+	 * Utility class, not to be instantiated
+	 */
+	private SaveFormat() {
+	}
+
+	/**
+	 * Encode a game
+	 * @param game The game to encode
+	 * @return The encoded game
+	 * @throws IOException If a player uses a search engine that cannot be saved
+	 */
+	public static byte[] encode(Game game) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(game.getPlayers());
+		out.writeByte(game.getGamemode());
+		out.writeByte(game.getStartingPlayer());
+		out.writeByte(game.getHints());
+		out.writeShort(game.getRounds());
+		out.writeBoolean(game.isGameOver());
+
+		// Store the start position; the moves follow after the players
+		Grid grid = game.getGrid();
+		int length = grid.getHistoryLength();
+		if(length > Grid.HISTORY_SIZE) {
+			throw new IOException("The game has too many moves to be saved");
+		}
+		out.writeLong(grid.getStartPieces(1));
+		out.writeLong(grid.getStartPieces(-1));
+		out.writeByte(grid.getStartSideToMove());
+
+		writePlayer(out, game.getPlayer1());
+		writePlayer(out, game.getPlayer2());
+
+		out.writeByte(length);
+		for(int i = 0; i < length; i++) {
+			out.writeByte(encodeMove(grid.getHistoryMove(i), grid.getHistoryColour(i)));
+		}
+
+		// Finish with the checksum of everything written so far
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt((int) crc.getValue());
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a game
+	 * @param data The encoded game
+	 * @return The game
+	 * @throws IOException If the data is not a valid save (wrong format, unknown version, checksum mismatch or invalid moves)
+	 */
+	public static Game decode(byte[] data) throws IOException {
+		// Check the checksum first, so no damaged data is decoded
+		if(data.length < 9) {
+			throw new IOException("The save is too short");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length - 4);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		if(in.readInt() != MAGIC) {
+			throw new IOException("This is not a save file");
+		}
+		int version = in.readUnsignedByte();
+		if(version < 1 || version > VERSION) {
+			throw new IOException("Unsupported save version " + version);
+		}
+		int checksum = ((data[data.length - 4] & 0xff) << 24) | ((data[data.length - 3] & 0xff) << 16)
+				| ((data[data.length - 2] & 0xff) << 8) | (data[data.length - 1] & 0xff);
+		if(checksum != (int) crc.getValue()) {
+			throw new IOException("The save is corrupted (checksum mismatch)");
+		}
+
+		int players = in.readByte();
+		int gamemode = in.readByte();
+		int startingPlayer = in.readByte();
+		int hints = in.readByte();
+		int rounds = in.readShort();
+		boolean gameOver = in.readBoolean();
+
+		Grid grid = new Grid();
+		grid.setPieces(in.readLong(), in.readLong());
+		grid.setSideToMove(in.readByte());
+		if((grid.getPieces(1) & grid.getPieces(-1)) != 0) {
+			throw new IOException("The save is corrupted (invalid position)");
+		}
+
+		Player player1 = readPlayer(in, version);
+		Player player2 = readPlayer(in, version);
+
+		// Replay the moves to restore the position and its history
+		int length = in.readUnsignedByte();
+		for(int i = 0; i < length; i++) {
+			int move = in.readUnsignedByte();
+			replay(grid, decodeSquare(move), decodeColour(move));
+		}
+
+		return new Game(players, gamemode, player1, player2, startingPlayer, hints, grid, rounds, gameOver);
+	}
+
+	/**
+	 * Save a game to a file
+	 * @param game The game
+	 * @param file The file to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Game game, File file) throws IOException {
+		Files.write(file.toPath(), encode(game));
+	}
+
+	/**
+	 * Load a game from a file
+	 * @param file The file to read
+	 * @return The game
+	 * @throws IOException If the file cannot be read or is not a valid save
+	 */
+	public static Game read(File file) throws IOException {
+		return decode(Files.readAllBytes(file.toPath()));
+	}
+
+	/**
+	 * Load a game saved with Java serialisation by earlier versions (.ser)
+	 * @param file The file to read
+	 * @return The game
+	 * @throws IOException If the file cannot be read or does not contain a game
+	 */
+	public static Game readSerialised(File file) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+			return (Game) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("The file does not contain a game", e);
+		}
+	}
+
+	/**
+	 * Encode a move as one byte: the field index (64 for a pass), plus 128 if light moved
+	 * @param square The field index of the move, or Grid.PASS
+	 * @param colour The colour that moved
+	 * @return The encoded move (0 to 255)
+	 */
+	public static int encodeMove(int square, int colour) {
+		return (square == Grid.PASS ? PASS : square) | (colour == 1 ? 0x80 : 0);
+	}
+
+	/**
+	 * @param move A move encoded by encodeMove()
+	 * @return The field index of the move, or Grid.PASS
+	 */
+	public static int decodeSquare(int move) {
+		int square = move & 0x7f;
+		return square == PASS ? Grid.PASS : square;
+	}
+
+	/**
+	 * @param move A move encoded by encodeMove()
+	 * @return The colour that moved
+	 */
+	public static int decodeColour(int move) {
+		return (move & 0x80) != 0 ? 1 : -1;
+	}
+
+	/**
+	 * Make a move of a save on the grid
+	 * @param grid The grid
+	 * @param square The field index of the move, or Grid.PASS
+	 * @param colour The colour that moved
+	 * @throws IOException If the move is not valid
+	 */
+	private static void replay(Grid grid, int square, int colour) throws IOException {
+		if(square == Grid.PASS) {
+			grid.setSideToMove(colour);
+			grid.pass();
+		}
+		else if(grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour) == 0) {
+			throw new IOException("The save is corrupted (invalid move)");
+		}
+	}
+
+	/**
+	 * Write a setting stored in one byte, which is read back as a signed byte
+	 * @param out The stream to write to
+	 * @param value The value of the setting
+	 * @param setting The name of the setting for the error message
+	 * @throws IOException If the value does not fit into the byte
+	 */
+	private static void writeSmall(DataOutputStream out, int value, String setting) throws IOException {
+		if(value < 0 || value > Byte.MAX_VALUE) {
+			throw new IOException("The " + setting + " " + value + " cannot be saved");
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Write a player
+	 * @param out The stream to write to
+	 * @param player The player
+	 * @throws IOException If the player's search engine cannot be saved
+	 */
+	private static void writePlayer(DataOutputStream out, Player player) throws IOException {
+		if(!(player instanceof ComputerPlayer)) {
+			out.writeByte(HUMAN);
+			out.writeByte(player.getColour());
+			out.writeUTF(player.getName());
+			return;
+		}
+
+		ComputerPlayer computer = (ComputerPlayer) player;
+		out.writeByte(COMPUTER);
+		out.writeByte(computer.getColour());
+		out.writeUTF(computer.getName());
+		writeSmall(out, computer.getThreads(), "number of threads");
+		writeSmall(out, computer.getEndgameEmpties(), "number of empty fields for the endgame solver");
+		out.writeBoolean(computer.isBookDisabled());
+
+		SearchEngine engine = computer.getEngine();
+		if(engine instanceof GreedyEngine) {
+			out.writeByte(GREEDY);
+		}
+		else if(engine instanceof AlphaBetaEngine) {
+			AlphaBetaEngine alphaBeta = (AlphaBetaEngine) engine;
+			out.writeByte(ALPHA_BETA);
+			writeSmall(out, alphaBeta.getDepth(), "search depth");
+			out.writeLong(alphaBeta.getNodeLimit());
+			out.writeLong(alphaBeta.getTimeLimit());
+			if(alphaBeta.getHashMegabytes() < 0 || alphaBeta.getHashMegabytes() > Short.MAX_VALUE) {
+				throw new IOException("The transposition table size " + alphaBeta.getHashMegabytes() + " MB cannot be saved");
+			}
+			out.writeShort(alphaBeta.getHashMegabytes());
+			out.writeByte(alphaBeta.getHeuristics());
+			out.writeBoolean(alphaBeta.isPatternsDisabled());
+		}
+		else if(engine instanceof MctsEngine) {
+			MctsEngine mcts = (MctsEngine) engine;
+			out.writeByte(MCTS);
+			out.writeLong(mcts.getPlayoutLimit());
+			out.writeLong(mcts.getTimeLimit());
+			out.writeInt(mcts.getMaxNodes());
+			out.writeBoolean(mcts.isTreeParallel());
+			out.writeDouble(mcts.getExploration());
+		}
+		else {
+			throw new IOException("The search engine " + engine.getClass().getName() + " cannot be saved");
+		}
+	}
+
+	/**
+	 * Read a player
+	 * @param in The stream to read from
+	 * @param version The format version of the save
+	 * @return The player
+	 * @throws IOException If the player is not valid
+	 */
+	private static Player readPlayer(DataInputStream in, int version) throws IOException {
+		int type = in.readByte();
+		int colour = in.readByte();
+		String name = in.readUTF();
+		if(type == HUMAN) {
+			return new HumanPlayer(colour, name);
+		}
+		if(type != COMPUTER) {
+			throw new IOException("Unknown player type " + type);
+		}
+
+		int threads = in.readByte();
+		int endgameEmpties = in.readByte();
+		boolean bookDisabled = version >= 2 && in.readBoolean();
+		int engineType = in.readByte();
+		SearchEngine engine;
+		if(engineType == GREEDY) {
+			engine = new GreedyEngine();
+		}
+		else if(engineType == ALPHA_BETA) {
+			int depth = in.readByte();
+			long nodeLimit = in.readLong();
+			long timeLimit = version >= 2 ? in.readLong() : in.readInt();
+			int hashMegabytes = in.readShort();
+			AlphaBetaEngine alphaBeta = new AlphaBetaEngine(depth, nodeLimit, hashMegabytes);
+			alphaBeta.setTimeLimit(timeLimit);
+			if(version >= 2) {
+				alphaBeta.setHeuristics(in.readByte());
+				if(in.readBoolean()) {
+					alphaBeta.setEvaluator(null);
+				}
+			}
+			engine = alphaBeta;
+		}
+		else if(engineType == MCTS) {
+			MctsEngine mcts = new MctsEngine(in.readLong(), 0);
+			mcts.setTimeLimit(version >= 2 ? in.readLong() : in.readInt());
+			mcts.setMaxNodes(in.readInt());
+			mcts.setTreeParallel(in.readBoolean());
+			mcts.setExploration(in.readDouble());
+			engine = mcts;
+		}
+		else {
+			throw new IOException("Unknown engine type " + engineType);
+		}
+
+		ComputerPlayer computer = new ComputerPlayer(colour, engine);
+		computer.setName(name);
+		computer.setThreads(threads);
+		computer.setEndgameEmpties(endgameEmpties);
+		if(bookDisabled) {
+			computer.setOpeningBook(null);
+		}
+		return computer;
+	}
+
+	/**
+	 * Main method converting the save files made with Java serialisation (.ser) to this format
+	 * @param args The directory of the saves (default ./saves) and -delete to delete the converted .ser files
+	 */
+	public static void main(String[] args) {
+		File directory = new File("./saves");
+		boolean delete = false;
+		for(String arg : args) {
+			if(arg.equals("-delete")) {
+				delete = true;
+			}
+			else {
+				directory = new File(arg);
+			}
+		}
+
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".ser"));
+		if(files == null || files.length == 0) {
+			System.out.println("No .ser save files found in " + directory.getPath());
+			return;
+		}
+
+		int converted = 0;
+		for(File file : files) {
+			String name = file.getName().replaceFirst("[.][^.]+$", "");
+			File target = new File(directory, name + EXTENSION);
+			long size = file.length();
+			try {
+				Game game = readSerialised(file);
+				byte[] data = encode(game);
+
+				// Check that the save restores the same position and settings before writing it
+				Game check = decode(data);
+				if(check.getGrid().getPieces(1) != game.getGrid().getPieces(1) || check.getGrid().getPieces(-1) != game.getGrid().getPieces(-1)) {
+					throw new IOException("The converted position differs");
+				}
+				if(!Arrays.equals(encode(check), data)) {
+					throw new IOException("The converted game differs");
+				}
+				if(target.exists()) {
+					throw new IOException(target.getName() + " already exists");
+				}
+				Files.write(target.toPath(), data);
+				if(delete && !file.delete()) {
+					System.out.println(name + ": the .ser file could not be deleted");
+				}
+				converted++;
+				System.out.println(name + ": " + size + " bytes -> " + data.length + " bytes");
+			} catch (IOException e) {
+				System.out.println(name + " could not be converted: " + e.getMessage());
+			}
+		}
+		System.out.println(converted + " of " + files.length + " save files converted.");
+	}
+
+}
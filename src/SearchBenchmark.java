@@ -0,0 +1,105 @@
+// Import Java libraries
+import java.util.Random;
+
+/**
+ * Class representing a command line benchmark of the parallel search.
+ * <p>
+ * Searches a fixed set of midgame positions to a fixed depth with 1 to 32 threads and prints the time to depth,
+ * the nodes per second and the speedup over one thread.
+ * Usage: java SearchBenchmark [depth] [positions] [threads...]
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class SearchBenchmark {
+
+	/**
+	 * Main method running the benchmark
+	 * @param args Search depth, number of positions and the thread counts to measure (all optional)
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int[] threadCounts = {1, 2, 4, 8, 16, 32};
+		if(args.length > 2) {
+			threadCounts = new int[args.length - 2];
+			for(int i = 2; i < args.length; i++) {
+				threadCounts[i - 2] = Integer.parseInt(args[i]);
+			}
+		}
+
+		Grid[] positions = positions(count, 20);
+		System.out.printf("Depth %d, %d positions, %d cores available%n", depth, count, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%8s %14s %14s %14s %10s%n", "Threads", "Time (ms)", "Nodes", "Nodes/s", "Speedup");
+
+		// Warm up the JIT compiler before measuring
+		search(positions, Math.min(depth, 6), 1);
+
+		double baseline = 0;
+		for(int threads : threadCounts) {
+			long[] result = search(positions, depth, threads);
+			double millis = result[0] / 1e6;
+			if(baseline == 0) {
+				baseline = millis;
+			}
+			System.out.printf("%8d %14.1f %14d %14.0f %10.2f%n", threads, millis, result[1], result[1] * 1e9 / result[0], baseline / millis);
+		}
+	}
+
+	/**
+	 * Search every position to a fixed depth
+	 * @param positions The positions to search
+	 * @param depth The depth to search to
+	 * @param threads The number of threads
+	 * @return The total time in nanoseconds and the total number of nodes
+	 */
+	private static long[] search(Grid[] positions, int depth, int threads) {
+		long time = 0;
+		long nodes = 0;
+		for(Grid grid : positions) {
+			AlphaBetaEngine engine = new AlphaBetaEngine(depth, 0, 64);
+			engine.setThreads(threads);
+			engine.getTranspositionTable();
+			long start = System.nanoTime();
+			engine.findBestMove(grid, grid.getSideToMove());
+			time += System.nanoTime() - start;
+			nodes += engine.getNodes();
+		}
+		return new long[] {time, nodes};
+	}
+
+	/**
+	 * Generate reproducible positions by playing random moves from the Othello start position
+	 * @param count The number of positions
+	 * @param moves The number of moves to play for each position
+	 * @return The positions, with the colour to move set
+	 */
+	public static Grid[] positions(int count, int moves) {
+		Random random = new Random(20210302L);
+		Grid[] positions = new Grid[count];
+		int i = 0;
+		while(i < count) {
+			Grid grid = new Grid();
+			grid.initialiseOthello();
+			int colour = -1;
+			for(int m = 0; m < moves && grid.checkValidMoves(); m++) {
+				if(!grid.checkValidMoves(colour)) {
+					colour = -colour;
+				}
+				long valid = grid.legalMoves(colour);
+				for(int skip = random.nextInt(Long.bitCount(valid)); skip > 0; skip--) {
+					valid &= valid - 1;
+				}
+				int square = Long.numberOfTrailingZeros(valid);
+				grid.makeMove(Bitboard.x(square), Bitboard.y(square), colour);
+				colour = -colour;
+			}
+			if(grid.checkValidMoves(colour)) {
+				grid.setSideToMove(colour);
+				positions[i++] = grid;
+			}
+		}
+		return positions;
+	}
+
+}
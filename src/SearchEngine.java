@@ -0,0 +1,44 @@
+/**
+ * Interface for the search algorithms a ComputerPlayer may use to determine its moves
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public interface SearchEngine extends java.io.Serializable {
+
+	/**
+	 * Determine the move to play. The grid may be changed during the search, but must be left in its original state.
+	 * @param grid The grid to evaluate
+	 * @param colour The colour to move
+	 * @return The coordinates of the move ({-1,-1} if there is no valid move)
+	 */
+	public int[] findBestMove(Grid grid, int colour);
+
+	/**
+	 * Set the number of threads to search with
+	 * @param threads The number of threads (engines that cannot search in parallel ignore this)
+	 */
+	public void setThreads(int threads);
+
+	/**
+	 * @return The time limit per move in milliseconds (0 if there is none)
+	 */
+	public long getTimeLimit();
+
+	/**
+	 * Set the time limit per move
+	 * @param timeLimit The time limit in milliseconds (0 for none; engines without a time limit ignore this)
+	 */
+	public void setTimeLimit(long timeLimit);
+
+	/**
+	 * @return The number of positions visited during the last search
+	 */
+	public long getNodes();
+
+	/**
+	 * @return The number of positions visited per second during the last search
+	 */
+	public double getNodesPerSecond();
+
+}
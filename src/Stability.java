@@ -0,0 +1,265 @@
+/**
+ * Class containing the computation of stable discs: discs that can never be flipped again, whatever is played.
+ * <p>
+ * A disc on an edge can only be flipped along that edge. Whether it is stable therefore only depends on the eight fields of the edge,
+ * and is looked up in a table of all 3^8 edges, computed once when the class is loaded by playing out every way the edge can be filled.
+ * A disc inside the board is stable if in each of the four directions (horizontal, vertical and both diagonals) its line is full,
+ * or one of its neighbours along the line is a stable disc of the same colour. These discs are found for the whole board at once
+ * with shifts, starting from the stable edge discs and repeating until no more discs are found.
+ * The result is a subset of the stable discs (a disc stable only because of a more distant pattern is not found), so it can be used as a bound.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public final class Stability {
+
+	/**
+	 * The fields not on an edge
+	 */
+	private static final long INTERIOR = 0x007e7e7e7e7e7e00L;
+
+	/**
+	 * The fields of column A
+	 */
+	private static final long A_FILE = 0x0101010101010101L;
+
+	/**
+	 * Gathers the fields of column A into the top byte, row y becoming bit 56 + y
+	 */
+	private static final long GATHER_A_FILE = 0x0102040810204080L;
+
+	/**
+	 * For every edge (code as in PatternEvaluator: digit 0 empty, 1 one colour, 2 the other) the stable discs of both colours, one bit per field
+	 */
+	private static final byte[] EDGE_TABLE = new byte[6561];
+
+	/**
+	 * For every byte the base-3 number with the same digits, to compute the code of an edge
+	 */
+	private static final short[] TERNARY = new short[256];
+
+	/**
+	 * For every byte the bitboard of column A with bit y set for row y
+	 */
+	private static final long[] SPREAD_A_FILE = new long[256];
+
+	/**
+	 * The main diagonal and anti-diagonal, the only ones with all eight fields
+	 */
+	private static final long MAIN_DIAGONAL = 0x8040201008040201L;
+	private static final long MAIN_ANTI_DIAGONAL = 0x0102040810204080L;
+
+	/**
+	 * The other diagonals (x and y increasing together) and anti-diagonals with at least three fields
+	 */
+	private static final long[] DIAGONALS = new long[10];
+	private static final long[] ANTI_DIAGONALS = new long[10];
+
+	static {
+		for(int bits = 0; bits < 256; bits++) {
+			int code = 0;
+			for(int i = 7; i >= 0; i--) {
+				code = code * 3 + ((bits >>> i) & 1);
+			}
+			TERNARY[bits] = (short) code;
+			for(int y = 0; y < 8; y++) {
+				if((bits & (1 << y)) != 0) {
+					SPREAD_A_FILE[bits] |= 1L << (y * 8);
+				}
+			}
+		}
+		computeEdgeTable();
+
+		// The diagonals of length 1 and 2 are always covered by their edge fields
+		int i = 0;
+		for(int start = -5; start <= 5; start++) {
+			if(start == 0) {
+				continue;
+			}
+			for(int x = 0; x < 8; x++) {
+				int y = x + start;
+				if(y >= 0 && y < 8) {
+					DIAGONALS[i] |= 1L << Bitboard.square(x, y);
+					ANTI_DIAGONALS[i] |= 1L << Bitboard.square(7 - x, y);
+				}
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * This class only offers static methods and may not be instantiated
+	 */
+	private Stability() {
+	}
+
+	/**
+	 * Compute the stable discs of every edge. The edges are visited from full to empty, so the edges a move leads to are always known:
+	 * a disc is stable if it is stable after every move either colour could make on the edge (legal in the game or not).
+	 */
+	private static void computeEdgeTable() {
+		byte[] first = new byte[6561];
+		for(int empties = 0; empties <= 8; empties++) {
+			for(int one = 0; one < 256; one++) {
+				for(int two = 0; two < 256; two++) {
+					if((one & two) != 0 || 8 - Integer.bitCount(one | two) != empties) {
+						continue;
+					}
+					first[code(one, two)] = (byte) edgeStable(first, one, two);
+				}
+			}
+		}
+
+		// The table holds the stable discs of both colours
+		for(int one = 0; one < 256; one++) {
+			for(int two = 0; two < 256; two++) {
+				if((one & two) == 0) {
+					EDGE_TABLE[code(one, two)] = (byte) (first[code(one, two)] | first[code(two, one)]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute the stable discs of the first colour on an edge, given those of all edges with more discs
+	 * @param table The stable discs of the first colour of the edges with more discs
+	 * @param own The discs of the first colour, one bit per field
+	 * @param other The discs of the second colour
+	 * @return The stable discs of the first colour
+	 */
+	private static int edgeStable(byte[] table, int own, int other) {
+		int stable = own;
+		int empty = ~(own | other) & 0xff;
+		for(int b = empty; b != 0 && stable != 0; b &= b - 1) {
+			int field = Integer.numberOfTrailingZeros(b);
+
+			// The first colour plays the field
+			int flips = edgeFlips(field, own, other);
+			stable &= table[code(own | flips | (1 << field), other & ~flips)] & 0xff;
+
+			// The second colour plays the field
+			flips = edgeFlips(field, other, own);
+			stable &= table[code(own & ~flips, other | flips | (1 << field))] & 0xff;
+		}
+		return stable;
+	}
+
+	/**
+	 * Get the discs flipped along an edge by a disc placed on a field
+	 * @param field The field (0-7)
+	 * @param player The discs of the colour placing the disc
+	 * @param opponent The discs of the other colour
+	 * @return The flipped discs, one bit per field
+	 */
+	private static int edgeFlips(int field, int player, int opponent) {
+		int flips = 0;
+		for(int direction = -1; direction <= 1; direction += 2) {
+			int line = 0;
+			int i = field + direction;
+			while(i >= 0 && i < 8 && (opponent & (1 << i)) != 0) {
+				line |= 1 << i;
+				i += direction;
+			}
+			if(i >= 0 && i < 8 && (player & (1 << i)) != 0) {
+				flips |= line;
+			}
+		}
+		return flips;
+	}
+
+	/**
+	 * @param one The discs of the first colour on an edge, one bit per field
+	 * @param two The discs of the second colour
+	 * @return The code of the edge
+	 */
+	private static int code(int one, int two) {
+		return TERNARY[one] + 2 * TERNARY[two];
+	}
+
+	/**
+	 * Get the stable discs of both colours on the four edges
+	 * @param player The pieces of one colour
+	 * @param opponent The pieces of the other colour
+	 * @return The stable discs on the edges
+	 */
+	public static long edgeStable(long player, long opponent) {
+		long stable = (EDGE_TABLE[code((int) player & 0xff, (int) opponent & 0xff)] & 0xffL)
+				| (EDGE_TABLE[code((int) (player >>> 56), (int) (opponent >>> 56))] & 0xffL) << 56;
+		stable |= SPREAD_A_FILE[EDGE_TABLE[code(column(player, 0), column(opponent, 0))] & 0xff];
+		stable |= SPREAD_A_FILE[EDGE_TABLE[code(column(player, 7), column(opponent, 7))] & 0xff] << 7;
+		return stable & (player | opponent);
+	}
+
+	/**
+	 * Gather a column of a bitboard into a byte, row y becoming bit y
+	 * @param board The bitboard
+	 * @param x The column
+	 * @return The fields of the column
+	 */
+	private static int column(long board, int x) {
+		return (int) ((((board >>> x) & A_FILE) * GATHER_A_FILE) >>> 56);
+	}
+
+	/**
+	 * Get the stable discs of a colour
+	 * @param player The pieces of the colour
+	 * @param opponent The pieces of the other colour
+	 * @return The stable discs of the colour
+	 */
+	public static long stableDiscs(long player, long opponent) {
+		long occupied = player | opponent;
+		long stable = edgeStable(player, opponent) & player;
+
+		// Without discs inside the board only the edge discs can be stable
+		long inside = player & INTERIOR;
+		if(inside == 0) {
+			return stable;
+		}
+
+		// The fields whose lines are full in each direction
+		long horizontal = occupied & (occupied >>> 4);
+		horizontal &= horizontal >>> 2;
+		horizontal &= horizontal >>> 1;
+		horizontal = (horizontal & A_FILE) * 0xff;
+
+		long vertical = occupied & (occupied >>> 32);
+		vertical &= vertical >>> 16;
+		vertical &= vertical >>> 8;
+		vertical = (vertical & 0xff) * A_FILE;
+
+		long diagonal = (occupied & MAIN_DIAGONAL) == MAIN_DIAGONAL ? MAIN_DIAGONAL : 0;
+		long antiDiagonal = (occupied & MAIN_ANTI_DIAGONAL) == MAIN_ANTI_DIAGONAL ? MAIN_ANTI_DIAGONAL : 0;
+		for(int i = 0; i < DIAGONALS.length; i++) {
+			if((occupied & DIAGONALS[i]) == DIAGONALS[i]) {
+				diagonal |= DIAGONALS[i];
+			}
+			if((occupied & ANTI_DIAGONALS[i]) == ANTI_DIAGONALS[i]) {
+				antiDiagonal |= ANTI_DIAGONALS[i];
+			}
+		}
+
+		// Interior discs only have interior and edge neighbours, so the shifts cannot wrap around into another row
+		stable |= inside & horizontal & vertical & diagonal & antiDiagonal;
+		long previous;
+		do {
+			previous = stable;
+			long h = horizontal | (stable << 1) | (stable >>> 1);
+			long v = vertical | (stable << 8) | (stable >>> 8);
+			long d = diagonal | (stable << 9) | (stable >>> 9);
+			long a = antiDiagonal | (stable << 7) | (stable >>> 7);
+			stable |= inside & h & v & d & a;
+		} while(stable != previous);
+		return stable;
+	}
+
+	/**
+	 * Get the number of stable discs of a colour
+	 * @param player The pieces of the colour
+	 * @param opponent The pieces of the other colour
+	 * @return The number of stable discs
+	 */
+	public static int countStable(long player, long opponent) {
+		return Long.bitCount(stableDiscs(player, opponent));
+	}
+
+}
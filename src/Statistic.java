@@ -1,5 +1,16 @@
+// Import Java libraries
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Class representing statistical data for the Reversi game
+ * <p>
+ * The results are counted per player type (1 singleplayer, 2 multiplayer, 3 computer vs computer), gamemode and outcome
+ * in striped counters, so games running in parallel can record their results at the same time without locking.
+ * The figures shown to the user are taken from a snapshot(), whose totals and win rates are computed from the same counts.
  * @author Kai Uerlichs
  * @version 1.0
  */
@@ -10,181 +21,296 @@ public class Statistic implements java.io.Serializable {
 	 * Objects of this class may be stored using Serialisation
 	 */
 	private static final long serialVersionUID = -2675298682148652405L;
-	
-	private int spAnalysedGames;
-	private int mpAnalysedGames;
-	
-	// Singleplayer statistics
-	private int spGamesWon;
-	private int spGamesLost;
-	private int spDraws;
-	private float spWinRate;
-	
-	// Multiplayer statistics
-	private int mpPlayer1Wins;
-	private int mpPlayer2Wins;
-	private int mpDraws;
-	private float mpPlayer1WinRate;
-	private float mpPlayer2WinRate;
-	
-	/**
-	 * Default constructor for an empty Statistic
-	 */
-	public Statistic() {
-		spAnalysedGames = 0;
-		mpAnalysedGames = 0;
-		
-		// Singleplayer statistics
-		spGamesWon = 0;
-		spGamesLost = 0;
-		spDraws = 0;
-		spWinRate = 0;
-		
-		// Multiplayer statistics
-		mpPlayer1Wins = 0;
-		mpPlayer2Wins = 0;
-		mpDraws = 0;
-		mpPlayer1WinRate = 0;
-		mpPlayer2WinRate = 0;
-	}
-	
+
 	/**
-	 * Add a new singleplayer stat entry
-	 * @param winner The winner of the game
+	 * The fields stored in the statistics file. The counts of the first version are still written, so older versions can read the file.
 	 */
-	public void addSingleplayer(int winner) {
-		spAnalysedGames++;
-		if(winner == 0) {
-			spGamesWon++;
-		}
-		else if(winner == 1) {
-			spGamesLost++;
-		}
-		else {
-			spDraws++;
-		}
-		spWinRate = spGamesWon / (spGamesWon + spGamesLost + spDraws);
-		
-		ReversiApp.saveStats();
-	}
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("spAnalysedGames", int.class),
+		new ObjectStreamField("mpAnalysedGames", int.class),
+		new ObjectStreamField("spGamesWon", int.class),
+		new ObjectStreamField("spGamesLost", int.class),
+		new ObjectStreamField("spDraws", int.class),
+		new ObjectStreamField("spWinRate", float.class),
+		new ObjectStreamField("mpPlayer1Wins", int.class),
+		new ObjectStreamField("mpPlayer2Wins", int.class),
+		new ObjectStreamField("mpDraws", int.class),
+		new ObjectStreamField("mpPlayer1WinRate", float.class),
+		new ObjectStreamField("mpPlayer2WinRate", float.class),
+		new ObjectStreamField("generation", long.class),
+		new ObjectStreamField("results", long[].class)
+	};
 
 	/**
-	 * Add a new multiplayer stat entry
-	 * @param winner The winner of the game
+	 * The number of player types (1 singleplayer, 2 multiplayer, 3 computer vs computer)
 	 */
-	public void addMultiplayer(int winner) {
-		mpAnalysedGames++;
-		if(winner == 0) {
-			mpPlayer1Wins++;
-		}
-		else if(winner == 1) {
-			mpPlayer2Wins++;
-		}
-		else {
-			mpDraws++;
-		}
-		mpPlayer1WinRate = mpPlayer1Wins / (mpPlayer1Wins + mpPlayer2Wins + mpDraws);
-		mpPlayer2WinRate = mpPlayer2Wins / (mpPlayer1Wins + mpPlayer2Wins + mpDraws);
-		
-		ReversiApp.saveStats();
-	}
-	
+	public static final int PLAYER_TYPES = 3;
+
 	/**
-	 * Set all statistics to 0
+	 * The number of gamemodes (1 Othello, 2 Traditional)
 	 */
-	public void reset() {
-		spAnalysedGames = 0;
-		mpAnalysedGames = 0;
-		
-		// Singleplayer statistics
-		spGamesWon = 0;
-		spGamesLost = 0;
-		spDraws = 0;
-		spWinRate = 0;
-		
-		// Multiplayer statistics
-		mpPlayer1Wins = 0;
-		mpPlayer2Wins = 0;
-		mpDraws = 0;
-		mpPlayer1WinRate = 0;
-		mpPlayer2WinRate = 0;
-	}
-	
+	public static final int GAMEMODES = 2;
+
 	/**
-	 * @return the spAnalysedGames
+	 * The number of outcomes (0 player 1 won, 1 player 2 won, 2 draw)
 	 */
-	public int getSpAnalysedGames() {
-		return spAnalysedGames;
-	}
+	public static final int OUTCOMES = 3;
+
+	// One counter per player type, gamemode and outcome
+	private transient LongAdder[] results;
+
+	// The generation of the snapshot these statistics were stored in (see StatisticLog)
+	private long generation;
 
 	/**
-	 * @return the mpAnalysedGames
+	 * Default constructor for an empty Statistic
 	 */
-	public int getMpAnalysedGames() {
-		return mpAnalysedGames;
+	public Statistic() {
+		results = new LongAdder[PLAYER_TYPES * GAMEMODES * OUTCOMES];
+		for(int i = 0; i < results.length; i++) {
+			results[i] = new LongAdder();
+		}
 	}
 
 	/**
-	 * @return the spGamesWon
+	 * Get the position of a counter
+	 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+	 * @param gamemode The gamemode (1 Othello, 2 Traditional)
+	 * @param winner The outcome (0 player 1 won, 1 player 2 won, 2 draw)
+	 * @return The index of the counter
 	 */
-	public int getSpGamesWon() {
-		return spGamesWon;
+	private static int index(int players, int gamemode, int winner) {
+		if(players < 1 || players > PLAYER_TYPES || gamemode < 1 || gamemode > GAMEMODES || winner < 0 || winner >= OUTCOMES) {
+			throw new IllegalArgumentException("Invalid result " + players + "/" + gamemode + "/" + winner);
+		}
+		return ((players - 1) * GAMEMODES + gamemode - 1) * OUTCOMES + winner;
 	}
 
 	/**
-	 * @return the spGamesLost
+	 * Record the result of a game. May be called by any number of threads at the same time.
+	 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+	 * @param gamemode The gamemode (1 Othello, 2 Traditional)
+	 * @param winner The winner of the game (0 player 1, 1 player 2, 2 draw)
 	 */
-	public int getSpGamesLost() {
-		return spGamesLost;
+	public void record(int players, int gamemode, int winner) {
+		results[index(players, gamemode, winner)].increment();
 	}
 
 	/**
-	 * @return the spDraws
+	 * Set all statistics to 0. Results recorded while resetting may or may not be kept.
 	 */
-	public int getSpDraws() {
-		return spDraws;
+	public void reset() {
+		for(LongAdder counter : results) {
+			counter.reset();
+		}
 	}
 
 	/**
-	 * @return the spWinRate
+	 * Take a snapshot of the statistics. Every counter is read once, so the figures of the snapshot agree with each other.
+	 * @return The snapshot
 	 */
-	public float getSpWinRate() {
-		return spWinRate;
+	public Snapshot snapshot() {
+		long[] counts = new long[results.length];
+		for(int i = 0; i < counts.length; i++) {
+			counts[i] = results[i].sum();
+		}
+		return new Snapshot(counts);
 	}
 
 	/**
-	 * @return the mpPlayer1Wins
+	 * Store the statistics, including the counts of the first version of this class
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written
 	 */
-	public int getMpPlayer1Wins() {
-		return mpPlayer1Wins;
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		Snapshot snapshot = snapshot();
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("spAnalysedGames", (int) snapshot.getSpAnalysedGames());
+		fields.put("mpAnalysedGames", (int) snapshot.getMpAnalysedGames());
+		fields.put("spGamesWon", (int) snapshot.getSpGamesWon());
+		fields.put("spGamesLost", (int) snapshot.getSpGamesLost());
+		fields.put("spDraws", (int) snapshot.getSpDraws());
+		fields.put("spWinRate", snapshot.getSpWinRate());
+		fields.put("mpPlayer1Wins", (int) snapshot.getMpPlayer1Wins());
+		fields.put("mpPlayer2Wins", (int) snapshot.getMpPlayer2Wins());
+		fields.put("mpDraws", (int) snapshot.getMpDraws());
+		fields.put("mpPlayer1WinRate", snapshot.getMpPlayer1WinRate());
+		fields.put("mpPlayer2WinRate", snapshot.getMpPlayer2WinRate());
+		fields.put("generation", generation);
+		fields.put("results", snapshot.counts);
+		out.writeFields();
 	}
 
 	/**
-	 * @return the mpPlayer2Wins
+	 * Restore the statistics. Files of the first version only hold the singleplayer and multiplayer counts, which are taken as Othello games.
+	 * @param in The stream to read from
+	 * @throws IOException If the stream cannot be read
+	 * @throws ClassNotFoundException If the saved classes cannot be found
 	 */
-	public int getMpPlayer2Wins() {
-		return mpPlayer2Wins;
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		results = new LongAdder[PLAYER_TYPES * GAMEMODES * OUTCOMES];
+		for(int i = 0; i < results.length; i++) {
+			results[i] = new LongAdder();
+		}
+		generation = fields.get("generation", 0L);
+
+		long[] counts = (long[]) fields.get("results", null);
+		if(counts != null && counts.length == results.length) {
+			for(int i = 0; i < counts.length; i++) {
+				results[i].add(counts[i]);
+			}
+		}
+		else {
+			results[index(1, 1, 0)].add(fields.get("spGamesWon", 0));
+			results[index(1, 1, 1)].add(fields.get("spGamesLost", 0));
+			results[index(1, 1, 2)].add(fields.get("spDraws", 0));
+			results[index(2, 1, 0)].add(fields.get("mpPlayer1Wins", 0));
+			results[index(2, 1, 1)].add(fields.get("mpPlayer2Wins", 0));
+			results[index(2, 1, 2)].add(fields.get("mpDraws", 0));
+		}
 	}
 
 	/**
-	 * @return the mpDraws
+	 * @return the generation of the snapshot
 	 */
-	public int getMpDraws() {
-		return mpDraws;
+	public long getGeneration() {
+		return generation;
 	}
 
 	/**
-	 * @return the mpPlayer1WinRate
+	 * @param generation the generation of the snapshot to set
 	 */
-	public float getMpPlayer1WinRate() {
-		return mpPlayer1WinRate;
+	public void setGeneration(long generation) {
+		this.generation = generation;
 	}
 
 	/**
-	 * @return the mpPlayer2WinRate
+	 * Class representing the statistics at one moment, which do not change any more
 	 */
-	public float getMpPlayer2WinRate() {
-		return mpPlayer2WinRate;
+	public static final class Snapshot {
+
+		// The counts of every player type, gamemode and outcome
+		private final long[] counts;
+
+		/**
+		 * Constructor for a snapshot of the given counts
+		 * @param pCounts The counts, indexed as the counters of Statistic
+		 */
+		private Snapshot(long[] pCounts) {
+			counts = pCounts;
+		}
+
+		/**
+		 * Get the number of games of a player type with an outcome
+		 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+		 * @param gamemode The gamemode (1 Othello, 2 Traditional, 0 for both)
+		 * @param winner The outcome (0 player 1 won, 1 player 2 won, 2 draw)
+		 * @return The number of games
+		 */
+		public long getGames(int players, int gamemode, int winner) {
+			if(gamemode == 0) {
+				return counts[index(players, 1, winner)] + counts[index(players, 2, winner)];
+			}
+			return counts[index(players, gamemode, winner)];
+		}
+
+		/**
+		 * Get the number of games of a player type
+		 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+		 * @return The number of games in both gamemodes
+		 */
+		public long getGames(int players) {
+			return getGames(players, 0, 0) + getGames(players, 0, 1) + getGames(players, 0, 2);
+		}
+
+		/**
+		 * Get the share of the games of a player type with an outcome
+		 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+		 * @param winner The outcome (0 player 1 won, 1 player 2 won, 2 draw)
+		 * @return The share between 0 and 1 (0 if no games were played)
+		 */
+		public float getRate(int players, int winner) {
+			long games = getGames(players);
+			return games > 0 ? (float) getGames(players, 0, winner) / games : 0;
+		}
+
+		/**
+		 * @return the spAnalysedGames
+		 */
+		public long getSpAnalysedGames() {
+			return getGames(1);
+		}
+
+		/**
+		 * @return the mpAnalysedGames
+		 */
+		public long getMpAnalysedGames() {
+			return getGames(2);
+		}
+
+		/**
+		 * @return the spGamesWon
+		 */
+		public long getSpGamesWon() {
+			return getGames(1, 0, 0);
+		}
+
+		/**
+		 * @return the spGamesLost
+		 */
+		public long getSpGamesLost() {
+			return getGames(1, 0, 1);
+		}
+
+		/**
+		 * @return the spDraws
+		 */
+		public long getSpDraws() {
+			return getGames(1, 0, 2);
+		}
+
+		/**
+		 * @return the spWinRate
+		 */
+		public float getSpWinRate() {
+			return getRate(1, 0);
+		}
+
+		/**
+		 * @return the mpPlayer1Wins
+		 */
+		public long getMpPlayer1Wins() {
+			return getGames(2, 0, 0);
+		}
+
+		/**
+		 * @return the mpPlayer2Wins
+		 */
+		public long getMpPlayer2Wins() {
+			return getGames(2, 0, 1);
+		}
+
+		/**
+		 * @return the mpDraws
+		 */
+		public long getMpDraws() {
+			return getGames(2, 0, 2);
+		}
+
+		/**
+		 * @return the mpPlayer1WinRate
+		 */
+		public float getMpPlayer1WinRate() {
+			return getRate(2, 0);
+		}
+
+		/**
+		 * @return the mpPlayer2WinRate
+		 */
+		public float getMpPlayer2WinRate() {
+			return getRate(2, 1);
+		}
 	}
-	
+
 }
@@ -0,0 +1,260 @@
+// Import Java libraries
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class representing the persistent statistics: a snapshot of the statistics and a log of the results recorded since.
+ * <p>
+ * Recording a result appends a single byte to the log (statistics.log) instead of rewriting the statistics. Every COMPACT_INTERVAL
+ * results the statistics are compacted into a new snapshot (statistics.ser, a serialised Statistic as before), which is written
+ * to a temporary file and renamed over the old one, and a new log is started. Files are therefore never left half written.
+ * On startup the snapshot is loaded and the results of the log are replayed on top of it.
+ * <p>
+ * Every snapshot has a generation, and the log starts with the generation of the snapshot it continues. A log of an older generation
+ * was left by a crash between writing a snapshot and starting the new log; its results are already in the snapshot and it is discarded.
+ * A log event is one byte: the player type in the high four bits (1 singleplayer, 2 multiplayer, 3 computer vs computer),
+ * then the gamemode minus one in bit 2 and the winner in bits 0 and 1 (0 player 1, 1 player 2, 2 draw).
+ * <p>
+ * Games finishing at the same time count their results in parallel and only take turns appending to the log.
+ * Compacting, resetting and closing wait until no result is being recorded, so a result is never counted without being logged.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class StatisticLog implements AutoCloseable {
+
+	/**
+	 * The directory of the statistics used if none is specified
+	 */
+	public static final String DEFAULT_DIRECTORY = "./stats";
+
+	/**
+	 * The number of results recorded before the statistics are compacted into a new snapshot
+	 */
+	public static final int COMPACT_INTERVAL = 1000;
+
+	/**
+	 * The first bytes of the log ("RVSL"), followed by the generation
+	 */
+	private static final int MAGIC = 0x5256534c;
+
+	// Declare fields of object
+	private final File snapshot;
+	private final File log;
+	private final Statistic stats;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Object appendLock = new Object();
+	private FileOutputStream out;
+	private int events;
+
+	/**
+	 * Constructor loading the statistics of a directory, creating empty statistics if there are none
+	 * @param directory The directory of the statistics
+	 * @throws IOException If the statistics cannot be read or the log cannot be opened
+	 */
+	public StatisticLog(File directory) throws IOException {
+		directory.mkdirs();
+		snapshot = new File(directory, "statistics.ser");
+		log = new File(directory, "statistics.log");
+
+		// Load the snapshot
+		Statistic loaded = new Statistic();
+		if(snapshot.exists()) {
+			try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(snapshot))) {
+				loaded = (Statistic) in.readObject();
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new IOException("The statistics file is not valid", e);
+			}
+		}
+		stats = loaded;
+
+		// Replay the log if it continues this snapshot, otherwise start a new one
+		if(replay()) {
+			out = new FileOutputStream(log, true);
+		}
+		else {
+			startLog();
+		}
+	}
+
+	/**
+	 * Open the statistics in the default directory
+	 * @return The statistics
+	 * @throws IOException If the statistics cannot be opened
+	 */
+	public static StatisticLog open() throws IOException {
+		return new StatisticLog(new File(DEFAULT_DIRECTORY));
+	}
+
+	/**
+	 * Apply the events of the log to the statistics
+	 * @return Whether the log exists and continues the snapshot
+	 * @throws IOException If the log cannot be read
+	 */
+	private boolean replay() throws IOException {
+		if(!log.exists()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+			if(in.readInt() != MAGIC || in.readLong() != stats.getGeneration()) {
+				return false;
+			}
+			int event;
+			while((event = in.read()) != -1) {
+				apply(event);
+				events++;
+			}
+			return true;
+		} catch (EOFException e) {
+			// The header was not completely written
+			return false;
+		}
+	}
+
+	/**
+	 * Apply one event to the statistics
+	 * @param event The event
+	 */
+	private void apply(int event) {
+		int players = event >>> 4;
+		int gamemode = ((event >>> 2) & 1) + 1;
+		int winner = event & 3;
+
+		// Unknown events (e.g. a byte damaged by a crash) are ignored
+		if(players >= 1 && players <= Statistic.PLAYER_TYPES && winner < Statistic.OUTCOMES) {
+			stats.record(players, gamemode, winner);
+		}
+	}
+
+	/**
+	 * Record the result of a game and append it to the log. Results are counted without waiting for each other; only the append
+	 * to the log is serialised. A compaction or reset waits for results being recorded, so it never sees a result that is counted
+	 * but not yet logged (which would count it twice on replay, or keep it after a reset).
+	 * Readers of the statistics still take their snapshots without locking.
+	 * @param players The player type (1 singleplayer, 2 multiplayer, 3 computer vs computer)
+	 * @param gamemode The gamemode (1 Othello, 2 Traditional)
+	 * @param winner The winner of the game (0 player 1, 1 player 2, 2 draw)
+	 * @throws IOException If the result cannot be written
+	 */
+	public void record(int players, int gamemode, int winner) throws IOException {
+		boolean due;
+		lock.readLock().lock();
+		try {
+			stats.record(players, gamemode, winner);
+			synchronized(appendLock) {
+				out.write(players << 4 | (gamemode - 1) << 2 | winner);
+				due = ++events >= COMPACT_INTERVAL;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		// Compact once, even if several results reached the interval at the same time
+		if(due) {
+			lock.writeLock().lock();
+			try {
+				if(events >= COMPACT_INTERVAL) {
+					writeSnapshot();
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Set all statistics to 0
+	 * @throws IOException If the statistics cannot be written
+	 */
+	public void reset() throws IOException {
+		lock.writeLock().lock();
+		try {
+			stats.reset();
+			writeSnapshot();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Write the statistics as a new snapshot and start a new log
+	 * @throws IOException If the snapshot or the log cannot be written
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			writeSnapshot();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Write the statistics as a new snapshot and start a new log, while no result is being recorded
+	 * @throws IOException If the snapshot or the log cannot be written
+	 */
+	private void writeSnapshot() throws IOException {
+		if(out != null) {
+			out.close();
+		}
+		stats.setGeneration(stats.getGeneration() + 1);
+
+		// Write the snapshot completely before it replaces the old one
+		File temporary = new File(snapshot.getPath() + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary); ObjectOutputStream objects = new ObjectOutputStream(file)) {
+			objects.writeObject(stats);
+			objects.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		startLog();
+	}
+
+	/**
+	 * Start an empty log continuing the current generation, replacing the old log
+	 * @throws IOException If the log cannot be written
+	 */
+	private void startLog() throws IOException {
+		File temporary = new File(log.getPath() + ".tmp");
+		try (DataOutputStream header = new DataOutputStream(new FileOutputStream(temporary))) {
+			header.writeInt(MAGIC);
+			header.writeLong(stats.getGeneration());
+		}
+		Files.move(temporary.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		out = new FileOutputStream(log, true);
+		events = 0;
+	}
+
+	/**
+	 * @return the statistics (changes are only persistent if made through this log)
+	 */
+	public Statistic getStatistic() {
+		return stats;
+	}
+
+	/**
+	 * Close the log. Every recorded result is already in the log, so nothing is lost by not compacting first.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			out.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
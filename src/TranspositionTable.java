@@ -0,0 +1,246 @@
+// Import Java libraries
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing a fixed-size transposition table storing search results by position hash.
+ * <p>
+ * The table is a single long[] of buckets holding two entries each. An entry is two longs: the hash xor the data, and the data.
+ * A probe only accepts an entry if both longs still match the hash, so several search threads can share one table without locks:
+ * an entry torn by two threads writing at once is simply treated as a miss.
+ * <p>
+ * Replacement: the first entry of a bucket keeps the deepest result of the current search, the second entry is always replaced.
+ *
+ * @author Kai Uerlichs
+ * @version 1.0
+ */
+public class TranspositionTable {
+
+	/**
+	 * The stored score is a lower bound (the search failed high)
+	 */
+	public static final int LOWER = 1;
+
+	/**
+	 * The stored score is an upper bound (the search failed low)
+	 */
+	public static final int UPPER = 2;
+
+	/**
+	 * The stored score is exact
+	 */
+	public static final int EXACT = 3;
+
+	/**
+	 * Returned by probe() if the position is not stored
+	 */
+	public static final long MISS = 0;
+
+	/**
+	 * Stored as the move if no best move is known
+	 */
+	public static final int NO_MOVE = 127;
+
+	// Layout of the data long: move (bits 0-6), bound (7-8), depth (9-16), generation (17-24), score (32-63)
+	private static final int BOUND_SHIFT = 7;
+	private static final int DEPTH_SHIFT = 9;
+	private static final int GENERATION_SHIFT = 17;
+	private static final int SCORE_SHIFT = 32;
+
+	/**
+	 * Number of longs per bucket (two entries of two longs)
+	 */
+	private static final int BUCKET_LONGS = 4;
+
+	// Table storage
+	private final long[] table;
+	private final int bucketMask;
+	private volatile int generation;
+
+	// Counters
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Constructor for a TranspositionTable using at most the given amount of memory
+	 * @param megabytes The memory budget in MB (the table is rounded down to a power of two buckets)
+	 */
+	public TranspositionTable(int megabytes) {
+		long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+		long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * 8));
+
+		// Arrays are limited to Integer.MAX_VALUE elements
+		buckets = Math.min(buckets, 1L << 28);
+
+		table = new long[(int) buckets * BUCKET_LONGS];
+		bucketMask = (int) buckets - 1;
+		generation = 0;
+	}
+
+	/**
+	 * Look up a position
+	 * @param hash The Zobrist hash of the position
+	 * @return The stored data, or MISS if the position is not stored
+	 */
+	public long probe(long hash) {
+		int index = bucket(hash);
+		for(int i = index; i < index + BUCKET_LONGS; i += 2) {
+			long data = table[i + 1];
+			if((table[i] ^ data) == hash && data != MISS) {
+				hits.increment();
+				return data;
+			}
+		}
+		misses.increment();
+		return MISS;
+	}
+
+	/**
+	 * Store a search result
+	 * @param hash The Zobrist hash of the position
+	 * @param depth The remaining depth the position was searched to
+	 * @param bound The bound type (LOWER, UPPER or EXACT)
+	 * @param score The score
+	 * @param move The best move (field index), or NO_MOVE
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		long data = ((long) score << SCORE_SHIFT)
+				| ((long) (generation & 0xff) << GENERATION_SHIFT)
+				| ((long) (Math.max(0, Math.min(depth, 0xff))) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| (move & 0x7f);
+
+		int index = bucket(hash);
+		int slot;
+
+		// Overwrite the same position if it is stored, otherwise keep the deepest entry of this search in the first slot
+		long first = table[index + 1];
+		long second = table[index + 3];
+		if((table[index] ^ first) == hash) {
+			slot = index;
+		}
+		else if((table[index + 2] ^ second) == hash) {
+			slot = index + 2;
+		}
+		else if(first == MISS || generation(first) != (generation & 0xff) || depth(first) <= depth) {
+			slot = index;
+		}
+		else {
+			slot = index + 2;
+		}
+
+		// Count overwritten entries of other positions
+		if(table[slot + 1] != MISS && (table[slot] ^ table[slot + 1]) != hash) {
+			collisions.increment();
+		}
+
+		table[slot] = hash ^ data;
+		table[slot + 1] = data;
+		stores.increment();
+	}
+
+	/**
+	 * Start a new search, so entries of earlier searches are replaced first
+	 */
+	public void newSearch() {
+		generation++;
+	}
+
+	/**
+	 * Remove all entries and reset the counters
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+		stores.reset();
+	}
+
+	/**
+	 * Get the index of the bucket of a hash
+	 * @param hash The hash
+	 * @return The index of the first long of the bucket
+	 */
+	private int bucket(long hash) {
+		return ((int) (hash >>> 32) & bucketMask) * BUCKET_LONGS;
+	}
+
+	/**
+	 * @param data Data returned by probe()
+	 * @return The stored score
+	 */
+	public static int score(long data) {
+		return (int) (data >> SCORE_SHIFT);
+	}
+
+	/**
+	 * @param data Data returned by probe()
+	 * @return The stored depth
+	 */
+	public static int depth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xff;
+	}
+
+	/**
+	 * @param data Data returned by probe()
+	 * @return The stored bound type
+	 */
+	public static int bound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 3;
+	}
+
+	/**
+	 * @param data Data returned by probe()
+	 * @return The stored best move (field index), or NO_MOVE
+	 */
+	public static int move(long data) {
+		return (int) data & 0x7f;
+	}
+
+	/**
+	 * @param data Data returned by probe()
+	 * @return The generation the entry was stored in
+	 */
+	private static int generation(long data) {
+		return (int) (data >>> GENERATION_SHIFT) & 0xff;
+	}
+
+	/**
+	 * @return The number of entries the table can hold
+	 */
+	public int getCapacity() {
+		return table.length / 2;
+	}
+
+	/**
+	 * @return The number of probes that found the position
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The number of probes that did not find the position
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The number of stores that overwrote an entry of a different position
+	 */
+	public long getCollisions() {
+		return collisions.sum();
+	}
+
+	/**
+	 * @return The number of stores
+	 */
+	public long getStores() {
+		return stores.sum();
+	}
+
+}